@@ -0,0 +1,26 @@
+package com.prospektai.demo.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "extraction_cache", indexes = @Index(name = "idx_extraction_cache_last_accessed", columnList = "last_accessed_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExtractionCacheEntity {
+
+        @Id
+        @Column(length = 64)
+        private String cacheKey;
+
+        @Column(columnDefinition = "TEXT", nullable = false)
+        private String offersJson;
+
+        private int offerCount;
+        private int sizeBytes;
+        private Instant createdAt;
+        private Instant lastAccessedAt;
+}
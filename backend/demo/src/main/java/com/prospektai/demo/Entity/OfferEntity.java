@@ -1,9 +1,15 @@
 package com.prospektai.demo.Entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 @Entity
 @Table(name = "offer_data")
@@ -33,4 +39,28 @@ public class OfferEntity {
         @Column(columnDefinition = "DATE")
         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd.MM.yyyy")
         private LocalDate offerDateEnd;
+
+        // Beim Speichern aus price/originalPrice/appPrice/quantity abgeleitet (PriceNormalizer)
+        private Integer priceCents;
+        private Integer originalPriceCents;
+        private Integer appPriceCents;
+        @Column(precision = 12, scale = 4)
+        private BigDecimal baseQuantity;
+        @Column(length = 8)
+        private String baseUnit;
+        private Integer unitPriceCents;
+        @JsonIgnore
+        private Short normalizerVersion;
+
+        // Herkunft für Checkpoints: Datei des Upload-Jobs und Seite (0-basiert)
+        @JsonIgnore
+        @Column(length = 36)
+        private String uploadFileId;
+        @JsonIgnore
+        private Integer pageIndex;
+
+        // Alle PDF-Dateien, in denen dieses Angebot vorkam (Dubletten werden per offer_key zusammengeführt)
+        @JdbcTypeCode(SqlTypes.ARRAY)
+        @Column(columnDefinition = "text[]")
+        private List<String> sourcePdfFiles;
 }
@@ -0,0 +1,30 @@
+package com.prospektai.demo.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "upload_file", indexes = @Index(name = "idx_upload_file_job", columnList = "job_id, position"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadFileEntity {
+
+        @Id
+        @Column(length = 36)
+        private String id;
+
+        @Column(length = 36, nullable = false)
+        private String jobId;
+
+        private int position;
+        private String filename;
+        private Integer pageCount;
+
+        // Original-PDF, solange noch Seiten offen sind; wird nach Abschluss des Jobs geleert
+        @Column(columnDefinition = "bytea")
+        @Basic(fetch = FetchType.LAZY)
+        @ToString.Exclude
+        private byte[] content;
+}
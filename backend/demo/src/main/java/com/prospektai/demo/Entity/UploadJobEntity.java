@@ -0,0 +1,35 @@
+package com.prospektai.demo.Entity;
+
+import com.prospektai.demo.service.UploadJob;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_job", indexes = @Index(name = "idx_upload_job_status", columnList = "status"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadJobEntity {
+
+        @Id
+        @Column(length = 36)
+        private String id;
+
+        @Enumerated(EnumType.STRING)
+        @Column(length = 16, nullable = false)
+        private UploadJob.Status status;
+
+        private int pagesPerChunk;
+        private Instant createdAt;
+        private Instant startedAt;
+        private Instant finishedAt;
+
+        @Column(columnDefinition = "TEXT")
+        private String error;
+
+        /** W3C-traceparent des Job-Traces (JobTracing) */
+        @Column(length = 128)
+        private String traceParent;
+}
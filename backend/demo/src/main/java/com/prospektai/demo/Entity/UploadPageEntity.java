@@ -0,0 +1,47 @@
+package com.prospektai.demo.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_page",
+        uniqueConstraints = @UniqueConstraint(name = "uk_upload_page_file_page", columnNames = {"file_id", "page_index"}),
+        indexes = @Index(name = "idx_upload_page_job_status", columnList = "job_id, status"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadPageEntity {
+
+        public enum Status { PENDING, IN_PROGRESS, DONE, SKIPPED, FAILED }
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        @Column(length = 36, nullable = false)
+        private String jobId;
+
+        @Column(length = 36, nullable = false)
+        private String fileId;
+
+        private int pageIndex;
+
+        @Enumerated(EnumType.STRING)
+        @Column(length = 16, nullable = false)
+        private Status status;
+
+        private int offerCount;
+        private int attempts;
+
+        @Column(columnDefinition = "TEXT")
+        private String error;
+
+        @Column(length = 64)
+        private String leaseOwner;
+
+        private Instant leaseUntil;
+
+        private Instant updatedAt;
+}
@@ -0,0 +1,87 @@
+package com.prospektai.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Render- und Kodierprofile für die Seitenbilder, die an das LLM gehen.
+ *
+ * @param profile      {@code auto} wählt das Profil je Seite anhand der Seitenkomplexität,
+ *                     jeder andere Wert erzwingt das Profil mit diesem Namen
+ * @param thumbnailDpi Auflösung der Vorschau, aus der die Komplexität geschätzt wird
+ * @param profiles     verfügbare Profile; bei {@code auto} gewinnt das Profil mit der höchsten
+ *                     {@code minComplexity}, die die Seite erreicht
+ * @param textLayer    Seiten mit ausreichender Textebene ohne volles Seitenbild verarbeiten
+ */
+@ConfigurationProperties(prefix = "prospekt.render")
+public record RenderProperties(
+        @DefaultValue("auto") String profile,
+        @DefaultValue("24") float thumbnailDpi,
+        List<EncodingProfile> profiles,
+        @DefaultValue TextLayer textLayer
+) {
+
+    public enum ImageFormat { JPEG, PNG, WEBP }
+
+    /**
+     * @param dpi           Renderauflösung
+     * @param maxLongEdge   Obergrenze für die längere Bildkante in Pixeln; die DPI wird bei
+     *                      großen Seiten entsprechend abgesenkt
+     * @param jpegQuality   JPEG-Qualität zwischen 0 und 1 (nur für JPEG/WebP)
+     * @param grayscale     Graustufen statt RGB rendern
+     * @param minComplexity Mindestkomplexität der Seite (Kantendichte 0..1) für dieses Profil
+     */
+    public record EncodingProfile(
+            String name,
+            @DefaultValue("150") float dpi,
+            @DefaultValue("2000") int maxLongEdge,
+            @DefaultValue("0.8") float jpegQuality,
+            @DefaultValue("false") boolean grayscale,
+            @DefaultValue("JPEG") ImageFormat format,
+            @DefaultValue("0") double minComplexity
+    ) {
+    }
+
+    /**
+     * Schwellwerte, ab denen eine Seite als digital erzeugt gilt und ihr Text statt eines
+     * hochaufgelösten Bildes an das LLM geht.
+     *
+     * @param minChars          Mindestzahl sichtbarer Zeichen auf der Seite
+     * @param minCoverage       Mindestanteil der Seitenfläche, den die Zeichenboxen abdecken
+     * @param minLetterRatio    Mindestanteil von Buchstaben und Ziffern; darunter ist die
+     *                          Textebene vermutlich kaputt (fehlende Unicode-Zuordnung)
+     * @param thumbnail         zusätzlich ein kleines Seitenbild mitschicken, damit das Modell
+     *                          Preise und Produkte räumlich zuordnen kann
+     * @param thumbnailLongEdge längere Kante des Vorschaubildes in Pixeln
+     */
+    public record TextLayer(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("200") int minChars,
+            @DefaultValue("0.02") double minCoverage,
+            @DefaultValue("0.6") double minLetterRatio,
+            @DefaultValue("true") boolean thumbnail,
+            @DefaultValue("800") int thumbnailLongEdge,
+            @DefaultValue("0.6") float thumbnailQuality
+    ) {
+
+        /**
+         * Profil für das Vorschaubild neben der Textebene; taucht unter diesem Namen auch in
+         * {@code /api/stats/encoding-profiles} auf.
+         */
+        public EncodingProfile thumbnailProfile() {
+            return new EncodingProfile("text", 100f, thumbnailLongEdge, thumbnailQuality, false, ImageFormat.JPEG, 0);
+        }
+    }
+
+    public RenderProperties {
+        if (profiles == null || profiles.isEmpty()) {
+            profiles = List.of(new EncodingProfile("legacy", 300f, Integer.MAX_VALUE, 0.75f, false, ImageFormat.JPEG, 0));
+        }
+        profiles = profiles.stream()
+                .sorted(Comparator.comparingDouble(EncodingProfile::minComplexity))
+                .toList();
+    }
+}
@@ -1,10 +1,15 @@
 package com.prospektai.demo.config;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
 
 
 @Configuration
@@ -16,10 +21,37 @@ public class WebClientConfig {
     @Value("${spring.ai.openai.base-url}")
     private String baseUrl;
 
+    @Value("${prospekt.llm.client.pool.max-connections:16}")
+    private int maxConnections;
+
+    @Value("${prospekt.llm.client.pool.pending-acquire-timeout:PT60S}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${prospekt.llm.client.pool.max-idle-time:PT30S}")
+    private Duration maxIdleTime;
+
+    @Value("${prospekt.llm.client.connect-timeout:PT10S}")
+    private Duration connectTimeout;
+
+    /** Auch Netty wartet so lange auf Antwortdaten; ein kürzeres Limit würde langsame Batch-Requests abbrechen und wiederholen. */
+    @Value("${prospekt.llm.client.call-timeout:PT3M}")
+    private Duration callTimeout;
+
     @Bean
     public WebClient client() {
+        // Verbindungen, die länger ungenutzt waren, schließt das Gateway oft still; nicht wiederverwenden
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("llm")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(callTimeout);
+
         return WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                 .build();
@@ -0,0 +1,37 @@
+package com.prospektai.demo.controller;
+import com.prospektai.demo.service.UploadJobService;
+import com.prospektai.demo.service.UploadJobStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final UploadJobService uploadJobService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadJobStatus> getJob(@PathVariable String id) {
+        return uploadJobService.findStatus(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stellt die fehlgeschlagenen Seiten eines Jobs erneut in die Warteschlange; bereits
+     * erledigte Seiten werden nicht noch einmal verarbeitet.
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<Map<String, String>> resumeJob(@PathVariable String id) {
+        if (!uploadJobService.resume(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", "Job hat keine fehlgeschlagenen Seiten oder seine Dateien liegen nicht mehr vor"));
+        }
+        return ResponseEntity.accepted().body(Map.of("jobId", id, "statusUrl", "/api/jobs/" + id));
+    }
+}
@@ -1,14 +1,30 @@
 package com.prospektai.demo.controller;
 import com.prospektai.demo.Entity.OfferEntity;
+import com.prospektai.demo.repository.OfferPage;
+import com.prospektai.demo.repository.OfferQuery;
+import com.prospektai.demo.repository.OfferSortField;
+import com.prospektai.demo.repository.StoreComparison;
+import com.prospektai.demo.service.ExportFormat;
+import com.prospektai.demo.service.OfferExportService;
 import com.prospektai.demo.service.OfferService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api")
@@ -17,14 +33,30 @@ public class OfferController {
 
     private static final Logger log = LoggerFactory.getLogger(OfferController.class);
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_SEARCH_RESULTS = 200;
+
     private final OfferService offerService;
+    private final OfferExportService offerExportService;
 
     @PostMapping("/upload")
-    public ResponseEntity<String> uploadFile(
+    public ResponseEntity<Map<String, String>> uploadFile(
             @RequestParam("files") List<MultipartFile> files,
             @RequestParam(value = "pagesPerChunk", defaultValue = "5") int pagesPerChunk) {
-        offerService.uploadFile(files, pagesPerChunk);
-        return ResponseEntity.ok("Datei erfolgreich hochgeladen");
+        try {
+            String jobId = offerService.uploadFile(files, pagesPerChunk);
+            return ResponseEntity.accepted().body(Map.of(
+                    "jobId", jobId,
+                    "statusUrl", "/api/jobs/" + jobId
+            ));
+        } catch (RejectedExecutionException e) {
+            log.warn("Upload abgelehnt, Verarbeitungswarteschlange ist voll");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("message", "Zu viele Uploads in Verarbeitung, bitte später erneut versuchen"));
+        } catch (IOException e) {
+            log.warn("Upload abgelehnt, Datei ist kein lesbares PDF: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("message", "Datei konnte nicht als PDF gelesen werden"));
+        }
     }
 
     @GetMapping("/offers")
@@ -33,6 +65,129 @@ public class OfferController {
         return ResponseEntity.ok(offers);
     }
 
+    /**
+     * Gefilterte, sortierte Seite von Angeboten. Die nächste Seite wird mit dem zurückgegebenen
+     * {@code nextCursor} abgefragt; {@code null} bedeutet, dass es keine weitere Seite gibt.
+     */
+    @GetMapping("/offers/page")
+    public ResponseEntity<?> getOfferPage(
+            @RequestParam(required = false) String storeName,
+            @RequestParam(required = false) Byte calenderWeek,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(required = false) String associatedPdfFile,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String baseUnit,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        OfferSortField sortField = OfferSortField.fromProperty(sort).orElse(null);
+        if (sortField == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unbekanntes Sortierfeld: " + sort));
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("message", "size muss zwischen 1 und " + MAX_PAGE_SIZE + " liegen"));
+        }
+
+        try {
+            OfferQuery query = new OfferQuery(storeName, calenderWeek, dateFrom, dateTo, associatedPdfFile,
+                    minPrice, maxPrice, baseUnit, sortField, "desc".equalsIgnoreCase(direction), size, cursor);
+            OfferPage page = offerService.queryOffers(query);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Exportiert alle Angebote zu den Filtern als NDJSON oder CSV. Die Zeilen werden direkt aus
+     * dem Datenbank-Cursor in die Antwort geschrieben; der Speicherbedarf hängt nicht von der
+     * Anzahl der Angebote ab.
+     */
+    @GetMapping("/offers/export")
+    public ResponseEntity<?> exportOffers(
+            @RequestParam(required = false) String storeName,
+            @RequestParam(required = false) Byte calenderWeek,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(required = false) String associatedPdfFile,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String baseUnit,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat = ExportFormat.fromName(format).orElse(null);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unbekanntes Format: " + format));
+        }
+
+        OfferQuery query;
+        try {
+            query = new OfferQuery(storeName, calenderWeek, dateFrom, dateTo, associatedPdfFile,
+                    minPrice, maxPrice, baseUnit, null, false, 0, null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                offerExportService.export(query, exportFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                offerExportService.export(query, exportFormat, out);
+            }
+        };
+
+        String filename = "offers." + exportFormat.getExtension();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/offers/search")
+    public ResponseEntity<?> searchOffers(
+            @RequestParam String q,
+            @RequestParam(required = false) Byte calenderWeek,
+            @RequestParam(required = false) String storeName,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Suchbegriff q fehlt"));
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().body(Map.of("message", "limit muss zwischen 1 und " + MAX_SEARCH_RESULTS + " liegen"));
+        }
+        return ResponseEntity.ok(offerService.searchOffers(q, calenderWeek, storeName, limit));
+    }
+
+    /**
+     * Preisvergleich: passende Angebote einer Kalenderwoche (Standard: aktuelle Woche) je Markt,
+     * der Markt mit dem günstigsten Angebot zuerst. Mit {@code baseUnit} (kg, l, stk) wird nach
+     * Grundpreis verglichen, z. B. "günstigster Preis je Liter".
+     */
+    @GetMapping("/offers/compare")
+    public ResponseEntity<?> compareStores(
+            @RequestParam String q,
+            @RequestParam(required = false) Byte calenderWeek,
+            @RequestParam(required = false) String baseUnit,
+            @RequestParam(defaultValue = "5") int perStore) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Suchbegriff q fehlt"));
+        }
+        if (perStore < 1 || perStore > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().body(Map.of("message", "perStore muss zwischen 1 und " + MAX_SEARCH_RESULTS + " liegen"));
+        }
+        byte week = calenderWeek != null ? calenderWeek : (byte) LocalDate.now().get(WeekFields.ISO.weekOfWeekBasedYear());
+        boolean perUnit = baseUnit != null && !baseUnit.isBlank();
+        List<StoreComparison> stores = offerService.compareStores(q, week, perStore, perUnit, baseUnit);
+        return ResponseEntity.ok(Map.of("calenderWeek", week, "stores", stores));
+    }
+
     @DeleteMapping("/offers/{id}")
     public ResponseEntity<String> deleteSingleOffer(@PathVariable Long id) {
         offerService.deleteSingleOffer(id);
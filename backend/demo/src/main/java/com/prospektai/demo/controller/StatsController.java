@@ -0,0 +1,27 @@
+package com.prospektai.demo.controller;
+import com.prospektai.demo.service.EncodingProfileStats;
+import com.prospektai.demo.service.LlmCallGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final EncodingProfileStats encodingProfileStats;
+    private final LlmCallGuard llmCallGuard;
+
+    @GetMapping("/encoding-profiles")
+    public ResponseEntity<Map<String, EncodingProfileStats.ProfileStats>> getEncodingProfileStats() {
+        return ResponseEntity.ok(encodingProfileStats.snapshot());
+    }
+
+    @GetMapping("/llm")
+    public ResponseEntity<LlmCallGuard.LlmClientStatus> getLlmStatus() {
+        return ResponseEntity.ok(llmCallGuard.snapshot());
+    }
+}
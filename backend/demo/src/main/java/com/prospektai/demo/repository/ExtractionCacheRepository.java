@@ -0,0 +1,33 @@
+package com.prospektai.demo.repository;
+
+import com.prospektai.demo.Entity.ExtractionCacheEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface ExtractionCacheRepository extends JpaRepository<ExtractionCacheEntity, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update ExtractionCacheEntity c set c.lastAccessedAt = :now where c.cacheKey = :key")
+    void touch(@Param("key") String key, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ExtractionCacheEntity c where c.lastAccessedAt < :threshold")
+    int deleteNotAccessedSince(@Param("threshold") Instant threshold);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            delete from extraction_cache where cache_key in (
+                select cache_key from extraction_cache order by last_accessed_at desc offset :maxEntries
+            )""", nativeQuery = true)
+    int trimToSize(@Param("maxEntries") long maxEntries);
+}
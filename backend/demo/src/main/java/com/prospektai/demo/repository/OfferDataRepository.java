@@ -12,6 +12,21 @@ import org.springframework.stereotype.Repository;
 public interface OfferDataRepository extends JpaRepository<OfferEntity, Long> {
     void deleteById(@NotNull Long id);
 
+    /**
+     * Entfernt die Datei aus Angeboten, die auch aus anderen Dateien stammen; diese Angebote bleiben
+     * erhalten und werden der nächsten Datei zugeordnet.
+     */
+    @Modifying
+    @Query(value = """
+            update offer_data
+            set source_pdf_files = array_remove(source_pdf_files, cast(:filename as text)),
+                associated_pdf_file = (array_remove(source_pdf_files, cast(:filename as text)))[1],
+                source_pages = array(select p from unnest(source_pages) p
+                                     where split_part(p, ':', 1) not in (select id from upload_file where filename = :filename))
+            where source_pdf_files @> array[cast(:filename as text)] and cardinality(source_pdf_files) > 1""",
+            nativeQuery = true)
+    int removeSourcePdfFile(@Param("filename") @NotNull String filename);
+
     @Modifying
     @Query("delete from OfferEntity offer where offer.associatedPdfFile = :filename")
     void deleteByAssociatedPdfFile(@Param("filename") @NotNull String filename);
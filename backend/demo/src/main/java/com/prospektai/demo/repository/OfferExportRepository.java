@@ -0,0 +1,44 @@
+package com.prospektai.demo.repository;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.stream.Stream;
+
+/**
+ * Liest Angebote für den Export als Stream. Der PostgreSQL-Treiber holt Zeilen nur dann
+ * portionsweise ({@code fetch-size}) über einen Cursor, wenn Autocommit aus ist – der Aufruf
+ * muss deshalb in einer Transaktion laufen, sonst landet das ganze Ergebnis im Speicher.
+ */
+@Repository
+public class OfferExportRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final OfferQueryRepository offerQueryRepository;
+
+    public OfferExportRepository(DataSource dataSource,
+                                 OfferQueryRepository offerQueryRepository,
+                                 @Value("${prospekt.export.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.offerQueryRepository = offerQueryRepository;
+    }
+
+    /**
+     * Alle Angebote zu den Filtern aus {@code query}, nach ID sortiert. Sortierung, Größe und
+     * Cursor der Abfrage werden ignoriert. Der Stream muss geschlossen werden.
+     */
+    public Stream<OfferEntity> stream(OfferQuery query) {
+        StringBuilder sql = new StringBuilder("select ").append(OfferRowMapper.COLUMNS).append(" from offer_data where true");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        offerQueryRepository.appendFilters(query, sql, params);
+        sql.append(" order by id");
+        return jdbcTemplate.queryForStream(sql.toString(), params, OfferRowMapper.INSTANCE);
+    }
+}
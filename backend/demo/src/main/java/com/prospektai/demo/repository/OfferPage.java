@@ -0,0 +1,12 @@
+package com.prospektai.demo.repository;
+
+import com.prospektai.demo.Entity.OfferEntity;
+
+import java.util.List;
+
+/**
+ * Eine Seite aus {@link OfferQueryRepository}. {@code nextCursor} ist {@code null}, wenn es keine
+ * weiteren Einträge gibt.
+ */
+public record OfferPage(List<OfferEntity> items, String nextCursor) {
+}
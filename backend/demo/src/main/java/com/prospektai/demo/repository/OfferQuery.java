@@ -0,0 +1,54 @@
+package com.prospektai.demo.repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Filter, Sortierung und Position für {@link OfferQueryRepository}. Alle Filter sind optional.
+ *
+ * @param dateFrom Angebote, die an oder nach diesem Tag noch gültig sind
+ * @param dateTo   Angebote, die an oder vor diesem Tag beginnen
+ * @param minPrice Preisgrenzen in Euro, verglichen mit dem normalisierten {@code price_cents};
+ *                 außerhalb des Wertebereichs von {@code price_cents} {@link IllegalArgumentException}
+ * @param baseUnit Basiseinheit des Grundpreises ({@code kg}, {@code l}, {@code stk})
+ * @param cursor   {@code nextCursor} der vorherigen Seite, oder {@code null} für die erste Seite
+ */
+public record OfferQuery(
+        String storeName,
+        Byte calenderWeek,
+        LocalDate dateFrom,
+        LocalDate dateTo,
+        String associatedPdfFile,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        String baseUnit,
+        OfferSortField sort,
+        boolean descending,
+        int size,
+        String cursor
+) {
+
+    public OfferQuery {
+        requireCentsRange("minPrice", minPrice);
+        requireCentsRange("maxPrice", maxPrice);
+    }
+
+    /**
+     * Preis in Cent, kaufmännisch gerundet.
+     */
+    static int toCents(BigDecimal euros) {
+        return euros.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
+
+    private static void requireCentsRange(String name, BigDecimal euros) {
+        if (euros == null) {
+            return;
+        }
+        try {
+            toCents(euros);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(name + " liegt außerhalb des gültigen Bereichs", e);
+        }
+    }
+}
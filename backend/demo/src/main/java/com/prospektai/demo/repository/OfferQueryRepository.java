@@ -0,0 +1,148 @@
+package com.prospektai.demo.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prospektai.demo.Entity.OfferEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Gefilterte, sortierte Abfrage auf {@code offer_data} mit Keyset-Paginierung. Statt OFFSET
+ * merkt sich der Cursor Sortierwert und ID der letzten Zeile; jede Seite kostet damit nur einen
+ * Indexbereich, unabhängig davon, wie weit vorne oder hinten sie liegt.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OfferQueryRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OfferPage find(OfferQuery query) {
+        OfferSortField sort = query.sort() != null ? query.sort() : OfferSortField.ID;
+        String direction = query.descending() ? "desc" : "asc";
+
+        StringBuilder sql = new StringBuilder("select ").append(OfferRowMapper.COLUMNS).append(" from offer_data where true");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        appendFilters(query, sql, params);
+        if (query.cursor() != null && !query.cursor().isBlank()) {
+            appendKeyset(sort, query.descending(), decodeCursor(query.cursor()), sql, params);
+        }
+
+        if (sort == OfferSortField.ID) {
+            sql.append(" order by id ").append(direction);
+        } else {
+            sql.append(" order by ").append(sort.column()).append(' ').append(direction).append(" nulls last, id ").append(direction);
+        }
+        sql.append(" limit :limit");
+        params.addValue("limit", query.size() + 1);
+
+        List<OfferEntity> rows = jdbcTemplate.query(sql.toString(), params, OfferRowMapper.INSTANCE);
+        if (rows.size() <= query.size()) {
+            return new OfferPage(rows, null);
+        }
+        List<OfferEntity> items = rows.subList(0, query.size());
+        return new OfferPage(List.copyOf(items), encodeCursor(sort, items.get(items.size() - 1)));
+    }
+
+    /**
+     * Hängt die WHERE-Bedingungen der Filter an {@code sql} an. Wird auch vom Export genutzt,
+     * damit beide dieselben Filter verstehen.
+     */
+    void appendFilters(OfferQuery query, StringBuilder sql, MapSqlParameterSource params) {
+        if (query.storeName() != null && !query.storeName().isBlank()) {
+            sql.append(" and store_name = :storeName");
+            params.addValue("storeName", query.storeName());
+        }
+        if (query.calenderWeek() != null) {
+            OfferWeeks.appendCalenderWeek(query.calenderWeek(), sql, params);
+        }
+        if (query.dateFrom() != null) {
+            sql.append(" and offer_date_end >= :dateFrom");
+            params.addValue("dateFrom", query.dateFrom());
+        }
+        if (query.dateTo() != null) {
+            sql.append(" and offer_date_start <= :dateTo");
+            params.addValue("dateTo", query.dateTo());
+        }
+        if (query.associatedPdfFile() != null && !query.associatedPdfFile().isBlank()) {
+            // auch Angebote, die mit denen einer anderen Datei zusammengeführt wurden
+            sql.append(" and source_pdf_files @> array[cast(:associatedPdfFile as text)]");
+            params.addValue("associatedPdfFile", query.associatedPdfFile());
+        }
+        if (query.minPrice() != null) {
+            sql.append(" and price_cents >= :minPriceCents");
+            params.addValue("minPriceCents", OfferQuery.toCents(query.minPrice()));
+        }
+        if (query.maxPrice() != null) {
+            sql.append(" and price_cents <= :maxPriceCents");
+            params.addValue("maxPriceCents", OfferQuery.toCents(query.maxPrice()));
+        }
+        if (query.baseUnit() != null && !query.baseUnit().isBlank()) {
+            sql.append(" and base_unit = :baseUnit");
+            params.addValue("baseUnit", query.baseUnit());
+        }
+    }
+
+    /**
+     * Bedingung für "nach der Cursor-Zeile" bei Sortierung {@code spalte, id} mit NULLS LAST.
+     */
+    private void appendKeyset(OfferSortField sort, boolean descending, Cursor cursor,
+                              StringBuilder sql, MapSqlParameterSource params) {
+        String op = descending ? "<" : ">";
+        params.addValue("cursorId", cursor.id());
+        if (sort == OfferSortField.ID) {
+            sql.append(" and id ").append(op).append(" :cursorId");
+            return;
+        }
+
+        String column = sort.column();
+        if (cursor.value() == null) {
+            sql.append(" and ").append(column).append(" is null and id ").append(op).append(" :cursorId");
+        } else {
+            try {
+                params.addValue("cursorValue", sort.parse(cursor.value()));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Ungültiger Cursor", e);
+            }
+            sql.append(" and (").append(column).append(' ').append(op).append(" :cursorValue")
+                    .append(" or (").append(column).append(" = :cursorValue and id ").append(op).append(" :cursorId)")
+                    .append(" or ").append(column).append(" is null)");
+        }
+    }
+
+    private String encodeCursor(OfferSortField sort, OfferEntity last) {
+        Object value = switch (sort) {
+            case ID -> null;
+            case STORE_NAME -> last.getStoreName();
+            case PRODUCT_NAME -> last.getProductName();
+            case OFFER_DATE_START -> last.getOfferDateStart();
+            case CALENDER_WEEK -> last.getCalenderWeek();
+            case PRICE -> last.getPriceCents();
+            case UNIT_PRICE -> last.getUnitPriceCents();
+        };
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new Cursor(value != null ? value.toString() : null, last.getId()));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cursor konnte nicht erzeugt werden", e);
+        }
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            return objectMapper.readValue(json, Cursor.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Ungültiger Cursor", e);
+        }
+    }
+
+    record Cursor(String value, long id) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.prospektai.demo.repository;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Bildet eine Zeile aus {@code offer_data} auf {@link OfferEntity} ab, ohne den
+ * Persistence-Context zu füllen. Erwartet die Spalten aus {@link #COLUMNS}.
+ */
+public class OfferRowMapper implements RowMapper<OfferEntity> {
+
+    public static final String COLUMNS = """
+            id, store_name, product_name, brand, product_description, quantity, price, original_price,
+            app_price, associated_pdf_file, calender_week, offer_date_start, offer_date_end, price_cents,
+            original_price_cents, app_price_cents, base_quantity, base_unit, unit_price_cents, normalizer_version,
+            source_pdf_files""";
+
+    public static final OfferRowMapper INSTANCE = new OfferRowMapper();
+
+    @Override
+    public OfferEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        OfferEntity offer = new OfferEntity();
+        offer.setId(rs.getLong("id"));
+        offer.setStoreName(rs.getString("store_name"));
+        offer.setProductName(rs.getString("product_name"));
+        offer.setBrand(rs.getString("brand"));
+        offer.setProductDescription(rs.getString("product_description"));
+        offer.setQuantity(rs.getString("quantity"));
+        offer.setPrice(rs.getString("price"));
+        offer.setOriginalPrice(rs.getString("original_price"));
+        offer.setAppPrice(rs.getString("app_price"));
+        offer.setAssociatedPdfFile(rs.getString("associated_pdf_file"));
+        short calenderWeek = rs.getShort("calender_week");
+        offer.setCalenderWeek(rs.wasNull() ? null : (byte) calenderWeek);
+        offer.setOfferDateStart(rs.getObject("offer_date_start", LocalDate.class));
+        offer.setOfferDateEnd(rs.getObject("offer_date_end", LocalDate.class));
+        offer.setPriceCents(getInteger(rs, "price_cents"));
+        offer.setOriginalPriceCents(getInteger(rs, "original_price_cents"));
+        offer.setAppPriceCents(getInteger(rs, "app_price_cents"));
+        offer.setBaseQuantity(rs.getBigDecimal("base_quantity"));
+        offer.setBaseUnit(rs.getString("base_unit"));
+        offer.setUnitPriceCents(getInteger(rs, "unit_price_cents"));
+        short normalizerVersion = rs.getShort("normalizer_version");
+        offer.setNormalizerVersion(rs.wasNull() ? null : normalizerVersion);
+        Array sourcePdfFiles = rs.getArray("source_pdf_files");
+        offer.setSourcePdfFiles(sourcePdfFiles != null ? List.of((String[]) sourcePdfFiles.getArray()) : null);
+        return offer;
+    }
+
+    private static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,93 @@
+package com.prospektai.demo.repository;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Produktsuche über {@code offer_data}. Treffer kommen aus zwei Indizes (siehe V2__partition_offer_data.sql):
+ * dem Volltextindex auf {@code search_vector} (deutsche Stammformen, z. B. "Äpfel" findet
+ * "Apfel") und dem Trigramm-Index auf {@code product_name} für Wortanfänge und Tippfehler.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OfferSearchRepository {
+
+    private static final String MATCH = """
+            from offer_data
+            cross join websearch_to_tsquery('german', :q) as tsq
+            where (search_vector @@ tsq or :q <% product_name)""";
+
+    private static final String SCORE = "ts_rank(search_vector, tsq) + word_similarity(:q, product_name)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Die relevantesten Angebote zu {@code q}, bestes Ergebnis zuerst.
+     */
+    public List<OfferEntity> search(String q, Byte calenderWeek, String storeName, int limit) {
+        StringBuilder sql = new StringBuilder("select ").append(OfferRowMapper.COLUMNS).append(' ').append(MATCH);
+        MapSqlParameterSource params = new MapSqlParameterSource("q", q);
+        appendFilters(calenderWeek, storeName, sql, params);
+        sql.append(" order by ").append(SCORE).append(" desc, id limit :limit");
+        params.addValue("limit", limit);
+        return jdbcTemplate.query(sql.toString(), params, OfferRowMapper.INSTANCE);
+    }
+
+    /**
+     * Passende Angebote einer Kalenderwoche, nach Markt gruppiert. Je Markt höchstens
+     * {@code perStore} Angebote, günstigstes zuerst; Märkte nach ihrem günstigsten Preis sortiert.
+     *
+     * @param perUnit nach Grundpreis ({@code unit_price_cents}) statt nach Preis vergleichen; dann
+     *                werden nur Angebote mit der Basiseinheit {@code baseUnit} berücksichtigt
+     */
+    public List<StoreComparison> compare(String q, byte calenderWeek, int perStore, boolean perUnit, String baseUnit) {
+        StringBuilder inner = new StringBuilder("select ").append(OfferRowMapper.COLUMNS)
+                .append(", ").append(perUnit ? "unit_price_cents" : "price_cents").append(" as price_value")
+                .append(", ").append(SCORE).append(" as score ").append(MATCH);
+        MapSqlParameterSource params = new MapSqlParameterSource("q", q);
+        appendFilters(calenderWeek, null, inner, params);
+        if (perUnit) {
+            inner.append(" and base_unit = :baseUnit");
+            params.addValue("baseUnit", baseUnit);
+        }
+
+        String sql = """
+                select * from (
+                    select m.*,
+                           row_number() over (partition by store_name order by price_value nulls last, score desc, id) as store_rank,
+                           min(price_value) over (partition by store_name) as store_min_price
+                    from (%s) m
+                ) ranked
+                where store_rank <= :perStore
+                order by store_min_price nulls last, store_name, store_rank""".formatted(inner);
+        params.addValue("perStore", perStore);
+
+        Map<String, StoreComparison> byStore = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, params, rs -> {
+            OfferEntity offer = OfferRowMapper.INSTANCE.mapRow(rs, rs.getRow());
+            int lowest = rs.getInt("store_min_price");
+            Integer lowestCents = rs.wasNull() ? null : lowest;
+            byStore.computeIfAbsent(String.valueOf(offer.getStoreName()),
+                    store -> new StoreComparison(offer.getStoreName(), lowestCents, new ArrayList<>())).offers().add(offer);
+        });
+        return new ArrayList<>(byStore.values());
+    }
+
+    private static void appendFilters(Byte calenderWeek, String storeName, StringBuilder sql, MapSqlParameterSource params) {
+        if (calenderWeek != null) {
+            OfferWeeks.appendCalenderWeek(calenderWeek, sql, params);
+        }
+        if (storeName != null && !storeName.isBlank()) {
+            sql.append(" and store_name = :storeName");
+            params.addValue("storeName", storeName);
+        }
+    }
+}
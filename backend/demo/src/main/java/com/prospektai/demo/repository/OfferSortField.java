@@ -0,0 +1,42 @@
+package com.prospektai.demo.repository;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Sortierbare Spalten für die Angebotsabfrage. Für jede Spalte gibt es einen Index auf
+ * {@code (spalte, id)}, damit Keyset-Abfragen ohne Sortierung im Speicher auskommen.
+ */
+public enum OfferSortField {
+    ID("id", "id", Long::valueOf),
+    STORE_NAME("storeName", "store_name", Function.identity()),
+    PRODUCT_NAME("productName", "product_name", Function.identity()),
+    OFFER_DATE_START("offerDateStart", "offer_date_start", LocalDate::parse),
+    CALENDER_WEEK("calenderWeek", "calender_week", Short::valueOf),
+    PRICE("price", "price_cents", Integer::valueOf),
+    UNIT_PRICE("unitPrice", "unit_price_cents", Integer::valueOf);
+
+    private final String property;
+    private final String column;
+    private final Function<String, Object> parser;
+
+    OfferSortField(String property, String column, Function<String, ?> parser) {
+        this.property = property;
+        this.column = column;
+        this.parser = value -> parser.apply(value);
+    }
+
+    public String column() {
+        return column;
+    }
+
+    Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    public static Optional<OfferSortField> fromProperty(String property) {
+        return Arrays.stream(values()).filter(f -> f.property.equals(property)).findFirst();
+    }
+}
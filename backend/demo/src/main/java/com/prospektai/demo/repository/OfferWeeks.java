@@ -0,0 +1,47 @@
+package com.prospektai.demo.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter auf die Kalenderwoche, abgestimmt auf den Partitionsschlüssel {@code offer_week} von
+ * {@code offer_data}: Ein Angebot der KW N liegt in der Partition des Montags der KW N in dem Jahr,
+ * das seinem Angebotszeitraum am nächsten liegt (Funktion {@code offer_week}, siehe
+ * V2__partition_offer_data.sql).
+ */
+final class OfferWeeks {
+
+    private OfferWeeks() {
+    }
+
+    /**
+     * Hängt {@code calender_week = :calenderWeek} an und schränkt zusätzlich {@code offer_week} auf
+     * den Montag dieser KW im Vorjahr, im aktuellen und im nächsten Jahr ein, damit Postgres nur
+     * diese Partitionen liest. Ältere Angebote mit derselben KW werden dadurch nicht mehr gefunden;
+     * das ist eine Änderung der API (README, Abschnitt Angebotsdaten).
+     * KW 53 gibt es nicht in jedem Jahr, solche Angebote liegen in der Woche ihres Datums; dafür
+     * und für ungültige Wochen bleibt es beim Filter auf {@code calender_week}.
+     */
+    static void appendCalenderWeek(byte calenderWeek, StringBuilder sql, MapSqlParameterSource params) {
+        sql.append(" and calender_week = :calenderWeek");
+        params.addValue("calenderWeek", (short) calenderWeek);
+        if (calenderWeek < 1 || calenderWeek > 52) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        int year = today.get(IsoFields.WEEK_BASED_YEAR);
+        List<LocalDate> mondays = new ArrayList<>(3);
+        for (int y = year - 1; y <= year + 1; y++) {
+            mondays.add(today.with(IsoFields.WEEK_BASED_YEAR, y)
+                    .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, calenderWeek)
+                    .with(DayOfWeek.MONDAY));
+        }
+        sql.append(" and offer_week in (:offerWeeks)");
+        params.addValue("offerWeeks", mondays);
+    }
+}
@@ -0,0 +1,14 @@
+package com.prospektai.demo.repository;
+
+import com.prospektai.demo.Entity.OfferEntity;
+
+import java.util.List;
+
+/**
+ * Passende Angebote eines Marktes, günstigstes zuerst.
+ *
+ * @param lowestCents niedrigster Preis (bzw. Grundpreis beim Vergleich je Einheit) in Cent, oder
+ *                    {@code null}, wenn kein Angebot des Marktes einen auswertbaren Preis hat
+ */
+public record StoreComparison(String storeName, Integer lowestCents, List<OfferEntity> offers) {
+}
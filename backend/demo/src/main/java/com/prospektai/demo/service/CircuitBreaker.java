@@ -0,0 +1,136 @@
+package com.prospektai.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Öffnet nach {@code failureThreshold} aufeinanderfolgenden Fehlern und lässt dann für
+ * {@code openDuration} keine Aufrufe durch; {@link #acquire()} wartet so lange. Danach darf
+ * genau ein Probeaufruf laufen: Erfolg schließt den Schalter wieder, ein Fehler öffnet ihn erneut.
+ * Kommt der Probeaufruf gar nicht zustande, muss der Aufrufer ihn mit {@link #onIgnored(boolean)}
+ * zurückgeben.
+ * Wartet mit {@link Condition} statt {@code synchronized}, damit virtuelle Threads ihren
+ * Träger-Thread freigeben.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return {@code true}, wenn dieser Aufruf der Probeaufruf im halb offenen Zustand ist
+     */
+    public boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                switch (state) {
+                    case CLOSED -> {
+                        return false;
+                    }
+                    case OPEN -> {
+                        long remaining = openedAt + openNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            state = State.HALF_OPEN;
+                            trialInFlight = false;
+                            log.info("Circuit Breaker '{}' halb offen, sende Probeaufruf", name);
+                        } else {
+                            changed.await(remaining, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                    case HALF_OPEN -> {
+                        if (!trialInFlight) {
+                            trialInFlight = true;
+                            return true;
+                        }
+                        // Zeitlich begrenzt, damit ein verlorenes Signal niemanden dauerhaft blockiert
+                        changed.await(openNanos, TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                log.info("Circuit Breaker '{}' geschlossen", name);
+                state = State.CLOSED;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                log.warn("Circuit Breaker '{}' geöffnet nach {} Fehlern, Pause {} ms",
+                        name, consecutiveFailures, TimeUnit.NANOSECONDS.toMillis(openNanos));
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aufruf beendet, ohne etwas über den Zustand des Endpunkts auszusagen (z. B. 400 oder 429),
+     * oder gar nicht erst gestartet (Unterbrechung, {@link Error}). War es der Probeaufruf, wird der
+     * Platz für einen neuen frei.
+     *
+     * @param trial Ergebnis von {@link #acquire()}
+     */
+    public void onIgnored(boolean trial) {
+        lock.lock();
+        try {
+            if (trial && state == State.HALF_OPEN) {
+                trialInFlight = false;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
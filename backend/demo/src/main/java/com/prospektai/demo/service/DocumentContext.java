@@ -0,0 +1,79 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Kontext, der über die Seiten eines Prospekts hinweg gilt: Marktname und Aktionszeitraum.
+ * Wird aus den bisher extrahierten Angeboten fortgeschrieben, als kurzer Text an die nächsten
+ * Requests gehängt und füllt fehlende Felder in Angeboten von Seiten ohne eigenen Kopf.
+ */
+public class DocumentContext {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private String storeName;
+    private LocalDate offerDateStart;
+    private LocalDate offerDateEnd;
+    private Byte calenderWeek;
+
+    public synchronized void update(List<OfferEntity> offers) {
+        for (OfferEntity offer : offers) {
+            if (storeName == null && offer.getStoreName() != null && !offer.getStoreName().isBlank()) {
+                storeName = offer.getStoreName();
+            }
+            if (offer.getOfferDateStart() != null && offer.getOfferDateEnd() != null) {
+                offerDateStart = offer.getOfferDateStart();
+                offerDateEnd = offer.getOfferDateEnd();
+                if (offer.getCalenderWeek() != null) {
+                    calenderWeek = offer.getCalenderWeek();
+                }
+            }
+        }
+    }
+
+    public synchronized void fill(List<OfferEntity> offers) {
+        for (OfferEntity offer : offers) {
+            if ((offer.getStoreName() == null || offer.getStoreName().isBlank()) && storeName != null) {
+                offer.setStoreName(storeName);
+            }
+            if (offer.getOfferDateStart() == null && offer.getOfferDateEnd() == null && offerDateStart != null) {
+                offer.setOfferDateStart(offerDateStart);
+                offer.setOfferDateEnd(offerDateEnd);
+            }
+            if (offer.getCalenderWeek() == null && calenderWeek != null) {
+                offer.setCalenderWeek(calenderWeek);
+            }
+        }
+    }
+
+    /**
+     * @return der erkannte Markt, oder {@code null}, solange noch keine Seite einen geliefert hat
+     */
+    public synchronized String storeName() {
+        return storeName;
+    }
+
+    /**
+     * Kompakte Beschreibung für den Prompt, oder {@code null}, solange noch nichts bekannt ist.
+     */
+    public synchronized String describe() {
+        StringBuilder text = new StringBuilder();
+        if (storeName != null) {
+            text.append("storeName=").append(storeName);
+        }
+        if (offerDateStart != null) {
+            if (!text.isEmpty()) text.append(", ");
+            text.append("offerDateStart=").append(DATE_FORMAT.format(offerDateStart))
+                    .append(", offerDateEnd=").append(DATE_FORMAT.format(offerDateEnd));
+        }
+        if (calenderWeek != null) {
+            if (!text.isEmpty()) text.append(", ");
+            text.append("calenderWeek=").append(calenderWeek);
+        }
+        return text.isEmpty() ? null : text.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package com.prospektai.demo.service;
+
+/**
+ * Was von einer Seite an das LLM geht: ein kodiertes Bild, die Textebene oder beides.
+ *
+ * @param data     Bilddaten, leer bei reinen Textseiten
+ * @param mimeType MIME-Typ der Bilddaten, oder {@code null} ohne Bild
+ * @param text     Textebene der Seite, oder {@code null}
+ */
+public record EncodedImage(byte[] data, String mimeType, String profile, String text) {
+
+    /** Profilname für Seiten, die ganz ohne Bild nur mit ihrer Textebene verarbeitet werden. */
+    public static final String TEXT_ONLY_PROFILE = "text-only";
+
+    public EncodedImage(byte[] data, String mimeType, String profile) {
+        this(data, mimeType, profile, null);
+    }
+
+    public static EncodedImage textOnly(String text) {
+        return new EncodedImage(new byte[0], null, TEXT_ONLY_PROFILE, text);
+    }
+
+    public EncodedImage withText(String text) {
+        return new EncodedImage(data, mimeType, profile, text);
+    }
+
+    public boolean hasImage() {
+        return data.length > 0;
+    }
+
+    /**
+     * Ungefähre Größe im Request; Text zählt mit einem Byte je Zeichen.
+     */
+    public int payloadBytes() {
+        return data.length + (text != null ? text.length() : 0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.prospektai.demo.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sammelt je Kodierprofil die gesendeten Bytes und die extrahierten Angebote, um das kleinste
+ * Profil zu finden, das noch gleich viele Angebote liefert.
+ */
+@Component
+public class EncodingProfileStats {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public void recordPayload(String profile, int bytes) {
+        Counters c = counters.computeIfAbsent(profile, p -> new Counters());
+        c.pages.increment();
+        c.payloadBytes.add(bytes);
+    }
+
+    public void recordOffers(String profile, int offers) {
+        counters.computeIfAbsent(profile, p -> new Counters()).offers.add(offers);
+    }
+
+    public Map<String, ProfileStats> snapshot() {
+        Map<String, ProfileStats> result = new TreeMap<>();
+        counters.forEach((profile, c) -> {
+            long pages = c.pages.sum();
+            long bytes = c.payloadBytes.sum();
+            long offers = c.offers.sum();
+            result.put(profile, new ProfileStats(
+                    pages,
+                    bytes,
+                    pages == 0 ? 0 : bytes / pages,
+                    offers,
+                    pages == 0 ? 0 : (double) offers / pages
+            ));
+        });
+        return result;
+    }
+
+    public record ProfileStats(long pages, long payloadBytes, long avgPayloadBytes, long offers, double offersPerPage) {
+    }
+
+    private static final class Counters {
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder payloadBytes = new LongAdder();
+        private final LongAdder offers = new LongAdder();
+    }
+}
@@ -0,0 +1,173 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prospektai.demo.Entity.ExtractionCacheEntity;
+import com.prospektai.demo.Entity.OfferEntity;
+import com.prospektai.demo.repository.ExtractionCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Inhaltsadressierter Cache für LLM-Extraktionen. Der Schlüssel ist ein Hash aus dem kodierten
+ * Seitenbild und dem Modell-/Prompt-Fingerabdruck des {@link OpenAiClient}; eine identische Seite
+ * aus einem erneuten Upload oder einer Regionalausgabe wird so ohne Modellaufruf beantwortet.
+ * Vor der Tabelle {@code extraction_cache} liegt ein LRU im Speicher.
+ */
+@Component
+public class ExtractionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionCache.class);
+    private static final TypeReference<List<OfferEntity>> OFFER_LIST = new TypeReference<>() {};
+    private static final Duration TOUCH_INTERVAL = Duration.ofHours(1);
+
+    private final ExtractionCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final OpenAiClient openAiClient;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final long maxEntries;
+    private final Map<String, CachedExtraction> memory;
+
+    public ExtractionCache(
+            ExtractionCacheRepository repository,
+            ObjectMapper objectMapper,
+            OpenAiClient openAiClient,
+            @Value("${prospekt.cache.enabled:true}") boolean enabled,
+            @Value("${prospekt.cache.max-age:P30D}") Duration maxAge,
+            @Value("${prospekt.cache.max-entries:100000}") long maxEntries,
+            @Value("${prospekt.cache.memory-entries:1000}") int memoryEntries) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.openAiClient = openAiClient;
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.maxEntries = maxEntries;
+        this.memory = new LinkedHashMap<>(memoryEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedExtraction> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String keyFor(EncodedImage image) {
+        MessageDigest digest = sha256();
+        digest.update(openAiClient.promptFingerprint().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(image.data());
+        if (image.text() != null) {
+            digest.update((byte) 0);
+            digest.update(image.text().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Liefert bei einem Treffer frische {@link OfferEntity}-Instanzen, die der Aufrufer frei
+     * verändern und speichern kann.
+     */
+    public Optional<List<OfferEntity>> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        CachedExtraction cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached == null) {
+            cached = repository.findById(key)
+                    .map(entity -> new CachedExtraction(entity.getOffersJson(), entity.getLastAccessedAt()))
+                    .orElse(null);
+            if (cached == null) {
+                return Optional.empty();
+            }
+            synchronized (memory) {
+                memory.put(key, cached);
+            }
+        }
+
+        Instant now = Instant.now();
+        if (cached.lastTouched() == null || cached.lastTouched().plus(TOUCH_INTERVAL).isBefore(now)) {
+            repository.touch(key, now);
+            synchronized (memory) {
+                memory.put(key, new CachedExtraction(cached.offersJson(), now));
+            }
+        }
+
+        try {
+            return Optional.of(objectMapper.readValue(cached.offersJson(), OFFER_LIST));
+        } catch (Exception e) {
+            log.warn("Cache-Eintrag {} nicht lesbar, wird ignoriert: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, List<OfferEntity> offers) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(offers);
+            Instant now = Instant.now();
+            repository.save(ExtractionCacheEntity.builder()
+                    .cacheKey(key)
+                    .offersJson(json)
+                    .offerCount(offers.size())
+                    .sizeBytes(json.getBytes(StandardCharsets.UTF_8).length)
+                    .createdAt(now)
+                    .lastAccessedAt(now)
+                    .build());
+            synchronized (memory) {
+                memory.put(key, new CachedExtraction(json, now));
+            }
+        } catch (Exception e) {
+            log.warn("Konnte Extraktion nicht im Cache ablegen: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${prospekt.cache.eviction-interval:PT1H}", initialDelayString = "PT5M")
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        int expired = repository.deleteNotAccessedSince(Instant.now().minus(maxAge));
+        int trimmed = repository.trimToSize(maxEntries);
+        if (expired + trimmed > 0) {
+            log.info("Extraktions-Cache bereinigt: {} abgelaufen, {} über Größenlimit", expired, trimmed);
+        }
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedExtraction(String offersJson, Instant lastTouched) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties;
+import com.prospektai.demo.config.RenderProperties.EncodingProfile;
+import com.prospektai.demo.config.RenderProperties.ImageFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Kodiert gerenderte Seiten im Speicher gemäß ihrem {@link EncodingProfile}. Jeder Encode-Worker
+ * behält seine {@link ImageWriter} und seinen Ausgabepuffer, sodass pro Seite nur das
+ * Ergebnis-Array neu angelegt wird.
+ */
+@Component
+public class ImageEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageEncoder.class);
+
+    private final ThreadLocal<EncoderState> state = ThreadLocal.withInitial(EncoderState::new);
+    private final boolean webpAvailable = ImageIO.getImageWritersByFormatName("webp").hasNext();
+
+    public ImageEncoder(RenderProperties properties) {
+        boolean webpConfigured = properties.profiles().stream().anyMatch(p -> p.format() == ImageFormat.WEBP);
+        if (webpConfigured && !webpAvailable) {
+            log.warn("WebP-Profil konfiguriert, aber kein ImageIO-WebP-Writer vorhanden; es wird JPEG verwendet.");
+        }
+    }
+
+    public EncodedImage encode(BufferedImage image, EncodingProfile profile) throws IOException {
+        ImageFormat format = profile.format() == ImageFormat.WEBP && !webpAvailable ? ImageFormat.JPEG : profile.format();
+
+        EncoderState encoder = state.get();
+        ImageWriter writer = encoder.writer(format);
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (format != ImageFormat.PNG && param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            if (param.getCompressionTypes() != null && param.getCompressionType() == null) {
+                param.setCompressionType(param.getCompressionTypes()[0]);
+            }
+            param.setCompressionQuality(profile.jpegQuality());
+        }
+
+        encoder.buffer.reset();
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(encoder.buffer)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.setOutput(null);
+        }
+        return new EncodedImage(encoder.buffer.toByteArray(), mimeType(format), profile.name());
+    }
+
+    private static String mimeType(ImageFormat format) {
+        return switch (format) {
+            case JPEG -> "image/jpeg";
+            case PNG -> "image/png";
+            case WEBP -> "image/webp";
+        };
+    }
+
+    private static final class EncoderState {
+        private final Map<ImageFormat, ImageWriter> writers = new EnumMap<>(ImageFormat.class);
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+
+        ImageWriter writer(ImageFormat format) {
+            return writers.computeIfAbsent(format, f -> {
+                Iterator<ImageWriter> candidates = ImageIO.getImageWritersByFormatName(f.name().toLowerCase());
+                if (!candidates.hasNext()) {
+                    throw new IllegalStateException("Kein ImageIO-Writer für " + f);
+                }
+                return candidates.next();
+            });
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import com.prospektai.demo.Entity.UploadPageEntity;
+import com.prospektai.demo.repository.OfferRowMapper;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Speichert Jobs und Dateien in der Datenbank (Tabellen {@code upload_job}, {@code upload_file})
+ * und legt je Seite einen Eintrag in {@code upload_page} an, den die {@link PageWorkQueue} an die
+ * Worker aller Instanzen verteilt. Der Job-Status wird aus diesen Tabellen gelesen, damit jede
+ * Instanz ihn beantworten kann.
+ */
+@Component
+@RequiredArgsConstructor
+public class JobCheckpointStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JobCheckpointStore.class);
+
+    /** Höchstzahl gespeicherter Angebote, aus denen der Dokumentkontext wiederhergestellt wird. */
+    private static final int MAX_CONTEXT_OFFERS = 500;
+
+    /** Abschnittsgröße beim Lesen von {@code upload_file.content}. */
+    private static final int CONTENT_CHUNK_BYTES = 1024 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Legt Job, Dateien und je Seite einen offenen Eintrag in der Warteschlange an.
+     *
+     * @param pageCounts  Seitenzahl je Datei, in derselben Reihenfolge wie {@code pdfs}
+     * @param traceParent Trace des Jobs, oder {@code null}
+     */
+    @Transactional
+    public void createJob(String jobId, List<UploadedPdf> pdfs, List<Integer> pageCounts, int pagesPerChunk, String traceParent) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update("insert into upload_job (id, status, pages_per_chunk, created_at, trace_parent) values (?, ?, ?, ?, ?)",
+                jobId, UploadJob.Status.QUEUED.name(), pagesPerChunk, now, traceParent);
+        for (int i = 0; i < pdfs.size(); i++) {
+            UploadedPdf pdf = pdfs.get(i);
+            int pageCount = pageCounts.get(i);
+            int position = i;
+            try (InputStream content = Files.newInputStream(pdf.file())) {
+                long size = Files.size(pdf.file());
+                jdbcTemplate.update("insert into upload_file (id, job_id, position, filename, page_count, content) values (?, ?, ?, ?, ?, ?)",
+                        ps -> {
+                            ps.setString(1, pdf.id());
+                            ps.setString(2, jobId);
+                            ps.setInt(3, position);
+                            ps.setString(4, pdf.originalFilename());
+                            ps.setInt(5, pageCount);
+                            ps.setBinaryStream(6, content, size);
+                        });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<Object[]> pages = new ArrayList<>(pageCount);
+            for (int page = 0; page < pageCount; page++) {
+                pages.add(new Object[]{jobId, pdf.id(), page, UploadPageEntity.Status.PENDING.name(), now});
+            }
+            jdbcTemplate.batchUpdate("""
+                    insert into upload_page (job_id, file_id, page_index, status, offer_count, attempts, updated_at)
+                    values (?, ?, ?, ?, 0, 0, ?)""", pages);
+        }
+    }
+
+    /**
+     * Anzahl der Jobs, die noch warten oder laufen, über alle Instanzen.
+     */
+    public int countUnfinishedJobs() {
+        Integer count = jdbcTemplate.queryForObject(
+                "select count(*) from upload_job where status in ('QUEUED', 'RUNNING')", Integer.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Schreibt den Inhalt einer Datei nach {@code target}. Der pgJDBC-Treiber liest {@code bytea}
+     * immer vollständig in den Heap, auch über {@code getBinaryStream}; der Inhalt wird deshalb in
+     * Abschnitten von {@link #CONTENT_CHUNK_BYTES} gelesen ({@code content} ist ohne Kompression
+     * gespeichert, siehe V1__baseline.sql, damit Postgres dafür nur die nötigen TOAST-Blöcke liest).
+     *
+     * @return leer, wenn die Datei nicht existiert oder ihr Inhalt schon gelöscht wurde
+     */
+    public Optional<StoredFile> loadFile(String fileId, Path target) {
+        List<Object[]> files = jdbcTemplate.query(
+                "select job_id, filename, octet_length(content) from upload_file where id = ? and content is not null",
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getInt(3)},
+                fileId);
+        if (files.isEmpty()) {
+            return Optional.empty();
+        }
+        int size = (Integer) files.get(0)[2];
+        try (OutputStream out = Files.newOutputStream(target)) {
+            for (int offset = 0; offset < size; offset += CONTENT_CHUNK_BYTES) {
+                byte[] chunk = jdbcTemplate.queryForObject(
+                        "select substring(content from ? for ?) from upload_file where id = ?",
+                        byte[].class, offset + 1, CONTENT_CHUNK_BYTES, fileId);
+                if (chunk == null) {
+                    // Job inzwischen abgeschlossen, Inhalt gelöscht
+                    return Optional.empty();
+                }
+                out.write(chunk);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredFile((String) files.get(0)[0], new UploadedPdf(fileId, target, (String) files.get(0)[1])));
+    }
+
+    /**
+     * Stellt den Dokumentkontext aus den bereits gespeicherten Angeboten der Seiten vor
+     * {@code beforePage} wieder her. Jeder Chunk erhält so einen eigenen Stand, auch wenn andere
+     * Worker oder Instanzen die Seiten davor verarbeitet haben.
+     */
+    public void restoreContext(String fileId, int beforePage, DocumentContext context) {
+        // Die letzten Angebote vor dem Chunk, in Seitenreihenfolge fortgeschrieben
+        List<OfferEntity> offers = new ArrayList<>(jdbcTemplate.query("select " + OfferRowMapper.COLUMNS + """
+                 from offer_data where upload_file_id = ? and page_index < ?
+                 order by page_index desc, id desc limit ?""",
+                OfferRowMapper.INSTANCE, fileId, beforePage, MAX_CONTEXT_OFFERS));
+        Collections.reverse(offers);
+        context.update(offers);
+    }
+
+    /**
+     * Setzt fehlgeschlagene Seiten eines Jobs zurück in die Warteschlange.
+     *
+     * @return {@code false}, wenn der Job keine fehlgeschlagenen Seiten hat oder seine Dateien
+     * nicht mehr vorliegen
+     */
+    @Transactional
+    public boolean prepareResume(String jobId) {
+        Integer files = jdbcTemplate.queryForObject(
+                "select count(*) from upload_file where job_id = ? and content is not null", Integer.class, jobId);
+        if (files == null || files == 0) {
+            return false;
+        }
+        int reset = jdbcTemplate.update(
+                "update upload_page set status = 'PENDING', attempts = 0, updated_at = ? where job_id = ? and status = 'FAILED'",
+                Timestamp.from(Instant.now()), jobId);
+        if (reset == 0) {
+            return false;
+        }
+        jdbcTemplate.update("update upload_job set status = ?, finished_at = null, error = null where id = ? and status = ?",
+                UploadJob.Status.RUNNING.name(), jobId, UploadJob.Status.FAILED.name());
+        log.info("Job {}: {} fehlgeschlagene Seiten zurückgesetzt", jobId, reset);
+        return true;
+    }
+
+    /**
+     * Status eines Jobs über alle Instanzen.
+     *
+     * @param localStats Messwerte dieser Instanz (Zeiten je Schritt, Cache-Treffer), oder {@code null}
+     */
+    public Optional<UploadJobStatus> loadStatus(String jobId, UploadJob localStats) {
+        List<String> files = jdbcTemplate.queryForList(
+                "select filename from upload_file where job_id = ? order by position", String.class, jobId);
+        List<String> failures = jdbcTemplate.queryForList("""
+                select f.filename || ' Seite ' || (p.page_index + 1) || ': ' || coalesce(p.error, '')
+                from upload_page p join upload_file f on f.id = p.file_id
+                where p.job_id = ? and p.status = 'FAILED' order by f.position, p.page_index limit 100""",
+                String.class, jobId);
+
+        List<UploadJobStatus> result = jdbcTemplate.query("""
+                select j.id, j.status, j.created_at, j.started_at, j.finished_at, j.error, j.trace_parent,
+                       count(p.id) as pages_total,
+                       count(p.id) filter (where p.status = 'DONE') as pages_done,
+                       count(p.id) filter (where p.status = 'SKIPPED') as pages_skipped,
+                       count(p.id) filter (where p.status = 'FAILED') as pages_failed,
+                       coalesce(sum(p.offer_count) filter (where p.status = 'DONE'), 0) as offers
+                from upload_job j left join upload_page p on p.job_id = j.id
+                where j.id = ?
+                group by j.id""", (rs, rowNum) -> {
+            Instant startedAt = toInstant(rs.getTimestamp("started_at"));
+            Instant finishedAt = toInstant(rs.getTimestamp("finished_at"));
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            Long elapsedMs = startedAt != null ? end.toEpochMilli() - startedAt.toEpochMilli() : null;
+            int pagesDone = rs.getInt("pages_done");
+            return new UploadJobStatus(
+                    rs.getString("id"),
+                    UploadJob.Status.valueOf(rs.getString("status")),
+                    files,
+                    toInstant(rs.getTimestamp("created_at")),
+                    startedAt,
+                    finishedAt,
+                    elapsedMs,
+                    elapsedMs != null && elapsedMs > 0 ? pagesDone * 60_000.0 / elapsedMs : null,
+                    rs.getInt("pages_total"),
+                    pagesDone,
+                    rs.getInt("pages_skipped"),
+                    rs.getInt("pages_failed"),
+                    rs.getInt("offers"),
+                    localStats != null ? localStats.getCacheHits() : 0,
+                    failures,
+                    rs.getString("error"),
+                    JobTracing.traceId(rs.getString("trace_parent")),
+                    localStats != null ? localStats.stageStatus() : Map.of());
+        }, jobId);
+        return result.stream().findFirst();
+    }
+
+    /**
+     * Entfernt abgeschlossene Jobs samt Seiten- und Dateieinträgen. Die Angebote bleiben erhalten.
+     */
+    @Transactional
+    public int deleteFinishedBefore(Instant threshold) {
+        Timestamp ts = Timestamp.from(threshold);
+        jdbcTemplate.update("""
+                delete from upload_page where job_id in (
+                    select id from upload_job where status = 'COMPLETED' and finished_at < ?)""", ts);
+        jdbcTemplate.update("""
+                delete from upload_file where job_id in (
+                    select id from upload_job where status = 'COMPLETED' and finished_at < ?)""", ts);
+        return jdbcTemplate.update("delete from upload_job where status = 'COMPLETED' and finished_at < ?", ts);
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    public record StoredFile(String jobId, UploadedPdf pdf) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.prospektai.demo.service;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.ReceiverContext;
+import io.micrometer.observation.transport.SenderContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ein Trace je Job. Beim Anlegen entsteht der Wurzel-Span, dessen W3C-{@code traceparent} am Job
+ * gespeichert wird; jede Instanz, die später Seiten des Jobs übernimmt, hängt ihre Spans daran.
+ * So landen alle Seiten eines Jobs im selben Trace, egal auf welcher Instanz sie laufen.
+ */
+@Component
+public class JobTracing {
+
+    private static final String TRACEPARENT = "traceparent";
+
+    private final ObservationRegistry registry;
+
+    public JobTracing(ObjectProvider<ObservationRegistry> registry) {
+        this.registry = registry.getIfAvailable(() -> ObservationRegistry.NOOP);
+    }
+
+    /**
+     * @return der {@code traceparent} des Jobs, oder {@code null} ohne Tracing bzw. wenn der
+     * Trace nicht gesampelt wurde
+     */
+    public String startJob(String jobId, int files, int pages) {
+        SenderContext<Map<String, String>> context = new SenderContext<>((carrier, key, value) -> carrier.put(key, value));
+        context.setCarrier(new HashMap<>());
+        Observation observation = Observation.createNotStarted("prospekt.job", () -> context, registry)
+                .highCardinalityKeyValue("job.id", jobId)
+                .highCardinalityKeyValue("job.files", String.valueOf(files))
+                .highCardinalityKeyValue("job.pages", String.valueOf(pages))
+                .start();
+        observation.stop();
+        return context.getCarrier().get(TRACEPARENT);
+    }
+
+    /**
+     * Beginnt die Verarbeitung übernommener Seiten als Kind des Job-Traces. Die Observation muss
+     * mit {@link Observation#openScope()} aktiviert und danach gestoppt werden.
+     */
+    public Observation startClaim(PageWorkQueue.PageClaim claim, String owner) {
+        ReceiverContext<Map<String, String>> context = new ReceiverContext<>((carrier, key) -> carrier.get(key));
+        context.setCarrier(claim.traceParent() != null ? Map.of(TRACEPARENT, claim.traceParent()) : Map.of());
+        return Observation.createNotStarted("prospekt.claim", () -> context, registry)
+                .highCardinalityKeyValue("job.id", claim.jobId())
+                .highCardinalityKeyValue("file.id", claim.fileId())
+                .highCardinalityKeyValue("pages", claim.pageIndices().toString())
+                .highCardinalityKeyValue("owner", owner)
+                .start();
+    }
+
+    /**
+     * Trace-ID aus einem W3C-{@code traceparent} ({@code 00-<trace-id>-<span-id>-<flags>}).
+     */
+    public static String traceId(String traceParent) {
+        if (traceParent == null) {
+            return null;
+        }
+        String[] parts = traceParent.split("-");
+        return parts.length == 4 ? parts[1] : null;
+    }
+}
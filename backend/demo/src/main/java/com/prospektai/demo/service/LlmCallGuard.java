@@ -0,0 +1,199 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Schutzschicht um alle Aufrufe des LLM-Endpunkts: begrenzt gleichzeitige Requests, hält die
+ * Rate über einen {@link TokenBucket} ein, wiederholt vorübergehende Fehler (429, 5xx,
+ * Timeouts, Verbindungsabbrüche) mit exponentiellem Backoff und Jitter und hält über einen
+ * {@link CircuitBreaker} alle Aufrufer an, solange der Endpunkt nicht gesund ist. Da die
+ * Aufrufer die Worker der LLM-Stufe sind, staut sich die Pipeline dabei zurück, statt Seiten
+ * reihenweise fehlschlagen zu lassen.
+ */
+@Component
+public class LlmCallGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmCallGuard.class);
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(408, 500, 502, 503, 504);
+
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final TokenBucket tokenBucket;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public LlmCallGuard(
+            @Value("${prospekt.llm.client.max-in-flight:8}") int maxInFlight,
+            @Value("${prospekt.llm.client.requests-per-minute:0}") int requestsPerMinute,
+            @Value("${prospekt.llm.client.burst:10}") int burst,
+            @Value("${prospekt.llm.client.retry.max-attempts:5}") int maxAttempts,
+            @Value("${prospekt.llm.client.retry.initial-backoff:PT1S}") Duration initialBackoff,
+            @Value("${prospekt.llm.client.retry.max-backoff:PT60S}") Duration maxBackoff,
+            @Value("${prospekt.llm.client.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${prospekt.llm.client.circuit-breaker.open-duration:PT30S}") Duration openDuration) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight, true);
+        this.tokenBucket = new TokenBucket(requestsPerMinute, burst);
+        this.circuitBreaker = new CircuitBreaker("llm", failureThreshold, openDuration);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public <T> T call(String operation, Callable<T> call) throws Exception {
+        return call(operation, call, () -> true);
+    }
+
+    /**
+     * Führt {@code call} aus und wiederholt ihn bei vorübergehenden Fehlern.
+     *
+     * @param retryAllowed wird vor jeder Wiederholung gefragt; z. B. {@code false}, wenn ein
+     *                     Streaming-Aufruf schon Teilergebnisse weitergegeben hat
+     */
+    public <T> T call(String operation, Callable<T> call, BooleanSupplier retryAllowed) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            boolean trial = circuitBreaker.acquire();
+            boolean reported = false;
+            Failure failure;
+            try {
+                tokenBucket.acquire();
+                inFlight.acquire();
+                try {
+                    calls.increment();
+                    T result = call.call();
+                    reported = true;
+                    circuitBreaker.onSuccess();
+                    return result;
+                } catch (Exception e) {
+                    failure = classify(e);
+                    reported = true;
+                    if (failure.countsAsFailure()) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onIgnored(trial);
+                    }
+                    if (!failure.retryable() || attempt >= maxAttempts || !retryAllowed.getAsBoolean()) {
+                        failures.increment();
+                        throw e;
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            } finally {
+                if (!reported) {
+                    // Beim Warten unterbrochen oder Error im Aufruf: Probeplatz nicht blockiert lassen
+                    circuitBreaker.onIgnored(trial);
+                }
+            }
+
+            Duration delay = backoff(attempt);
+            if (failure.retryAfter() != null) {
+                throttled.increment();
+                tokenBucket.pause(failure.retryAfter());
+                if (failure.retryAfter().compareTo(delay) > 0) {
+                    delay = failure.retryAfter();
+                }
+            }
+            retries.increment();
+            log.warn("LLM-Aufruf {} fehlgeschlagen ({}), Versuch {}/{} in {} ms",
+                    operation, failure.reason(), attempt + 1, maxAttempts, delay.toMillis());
+            TimeUnit.MILLISECONDS.sleep(delay.toMillis());
+        }
+    }
+
+    public LlmClientStatus snapshot() {
+        return new LlmClientStatus(
+                circuitBreaker.getState().name(),
+                maxInFlight - inFlight.availablePermits(),
+                tokenBucket.availableTokens(),
+                calls.sum(),
+                retries.sum(),
+                throttled.sum(),
+                failures.sum());
+    }
+
+    /**
+     * Zufällig zwischen der Hälfte und dem vollen, exponentiell wachsenden Limit, damit sich
+     * viele gleichzeitig gedrosselte Aufrufer nicht im Gleichschritt wiederholen.
+     */
+    private Duration backoff(int attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap / 2, cap + 1));
+    }
+
+    private static Failure classify(Exception e) {
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                Duration retryAfter = parseRetryAfter(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                return new Failure(true, false, retryAfter != null ? retryAfter : Duration.ZERO, "429");
+            }
+            return new Failure(RETRYABLE_STATUS.contains(status), status >= 500, null, String.valueOf(status));
+        }
+        if (e instanceof WebClientRequestException) {
+            return new Failure(true, true, null, e.getClass().getSimpleName());
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException || (t instanceof IOException && !(t instanceof JsonProcessingException))) {
+                return new Failure(true, true, null, t.getClass().getSimpleName());
+            }
+        }
+        return new Failure(false, false, null, e.getClass().getSimpleName());
+    }
+
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (RuntimeException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param countsAsFailure zählt für den Circuit Breaker (5xx, Timeouts, Verbindungsfehler)
+     * @param retryAfter      bei 429: Pause für den Token-Bucket, sonst {@code null}
+     */
+    private record Failure(boolean retryable, boolean countsAsFailure, Duration retryAfter, String reason) {
+    }
+
+    public record LlmClientStatus(String circuitState, int inFlight, double availableTokens,
+                                  long calls, long retries, long throttled, long failures) {
+    }
+}
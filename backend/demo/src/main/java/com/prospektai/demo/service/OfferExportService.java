@@ -0,0 +1,137 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.prospektai.demo.Entity.OfferEntity;
+import com.prospektai.demo.repository.OfferExportRepository;
+import com.prospektai.demo.repository.OfferQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Schreibt Angebote Zeile für Zeile in einen Ausgabestrom, ohne die Ergebnismenge im Speicher
+ * zu halten. Läuft in einer Lese-Transaktion, damit der Treiber die Zeilen per Cursor liefert.
+ */
+@Service
+public class OfferExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OfferExportService.class);
+
+    private static final String CSV_HEADER = "id;storeName;productName;brand;productDescription;quantity;price;"
+            + "originalPrice;appPrice;associatedPdfFile;calenderWeek;offerDateStart;offerDateEnd;"
+            + "priceCents;originalPriceCents;appPriceCents;baseQuantity;baseUnit;unitPriceCents";
+
+    private final OfferExportRepository offerExportRepository;
+    private final ObjectWriter jsonWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public OfferExportService(OfferExportRepository offerExportRepository, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.offerExportRepository = offerExportRepository;
+        this.jsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @return Anzahl der geschriebenen Angebote
+     */
+    public long export(OfferQuery query, ExportFormat format, OutputStream out) {
+        long start = System.nanoTime();
+        Long count = transactionTemplate.execute(status -> {
+            try (Stream<OfferEntity> offers = offerExportRepository.stream(query)) {
+                return switch (format) {
+                    case NDJSON -> writeNdjson(offers.iterator(), out);
+                    case CSV -> writeCsv(offers.iterator(), out);
+                };
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Export ({}) mit {} Angeboten in {} ms", format, count, (System.nanoTime() - start) / 1_000_000);
+        return count != null ? count : 0;
+    }
+
+    private long writeNdjson(Iterator<OfferEntity> offers, OutputStream out) throws IOException {
+        long count = 0;
+        JsonGenerator generator = jsonWriter.createGenerator(out);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        while (offers.hasNext()) {
+            jsonWriter.writeValue(generator, offers.next());
+            count++;
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return count;
+    }
+
+    private long writeCsv(Iterator<OfferEntity> offers, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (offers.hasNext()) {
+            OfferEntity offer = offers.next();
+            writer.write(String.valueOf(offer.getId()));
+            writeCsvField(writer, offer.getStoreName());
+            writeCsvField(writer, offer.getProductName());
+            writeCsvField(writer, offer.getBrand());
+            writeCsvField(writer, offer.getProductDescription());
+            writeCsvField(writer, offer.getQuantity());
+            writeCsvField(writer, offer.getPrice());
+            writeCsvField(writer, offer.getOriginalPrice());
+            writeCsvField(writer, offer.getAppPrice());
+            writeCsvField(writer, offer.getAssociatedPdfFile());
+            writeCsvField(writer, text(offer.getCalenderWeek()));
+            writeCsvField(writer, text(offer.getOfferDateStart()));
+            writeCsvField(writer, text(offer.getOfferDateEnd()));
+            writeCsvField(writer, text(offer.getPriceCents()));
+            writeCsvField(writer, text(offer.getOriginalPriceCents()));
+            writeCsvField(writer, text(offer.getAppPriceCents()));
+            writeCsvField(writer, offer.getBaseQuantity() != null ? offer.getBaseQuantity().toPlainString() : null);
+            writeCsvField(writer, offer.getBaseUnit());
+            writeCsvField(writer, text(offer.getUnitPriceCents()));
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(';');
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(';') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,73 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Kanonischer Schlüssel eines Angebots für {@code offer_data.offer_key}: SHA-256 über Markt,
+ * Produktname, Marke, Menge, Preis, Gültigkeitszeitraum und Kalenderwoche. Die Kalenderwoche
+ * bestimmt die Angebotswoche mit ({@code offer_week}); gleiche Schlüssel liegen daher immer in
+ * derselben Woche und Partition. Texte werden vorher vereinheitlicht
+ * (Unicode-NFKC, Kleinschreibung, nur Buchstaben und Ziffern), damit dasselbe Angebot aus einer
+ * Regionalausgabe oder einem erneuten Upload denselben Schlüssel bekommt.
+ * <p>
+ * Änderungen an den Regeln, auch an {@link PriceNormalizer#parseCents}, erzeugen neue Schlüssel;
+ * bestehende Zeilen müssen dann per Migration neu berechnet werden, mit einer eigenen Kopie der
+ * Regeln wie in {@code db.migration.V4__Backfill_offer_keys}.
+ */
+public final class OfferKey {
+
+    private static final Pattern NOT_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final char SEPARATOR = '\u001f';
+
+    private OfferKey() {
+    }
+
+    /**
+     * Erwartet ein bereits normalisiertes Angebot ({@link PriceNormalizer#normalize}); der Preis geht
+     * als {@code priceCents} ein und nur, wenn er sich nicht lesen ließ, als Text.
+     */
+    public static byte[] of(OfferEntity offer) {
+        StringBuilder key = new StringBuilder(128);
+        append(key, text(offer.getStoreName()));
+        append(key, text(offer.getProductName()));
+        append(key, text(offer.getBrand()));
+        append(key, text(offer.getQuantity()));
+        append(key, offer.getPriceCents() != null ? offer.getPriceCents().toString() : text(offer.getPrice()));
+        append(key, date(offer.getOfferDateStart()));
+        append(key, date(offer.getOfferDateEnd()));
+        append(key, offer.getCalenderWeek() != null ? offer.getCalenderWeek().toString() : "");
+        return sha256().digest(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(StringBuilder key, String part) {
+        key.append(part).append(SEPARATOR);
+    }
+
+    static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return NOT_ALPHANUMERIC.matcher(normalized).replaceAll("");
+    }
+
+    private static String date(LocalDate date) {
+        return date != null ? date.toString() : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
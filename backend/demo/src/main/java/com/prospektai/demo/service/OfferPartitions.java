@@ -0,0 +1,181 @@
+package com.prospektai.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pflegt die Wochenpartitionen von {@code offer_data} (Schlüssel {@code offer_week}, der Montag der
+ * Angebotswoche, siehe V2__partition_offer_data.sql). Kommende Wochen werden vorab angelegt;
+ * abgelaufene Wochen werden als ganze Partition abgehängt und gelöscht, statt Zeilen zu löschen.
+ * <p>
+ * Angebote einer Woche ohne Partition landen in {@code offer_data_default} und werden beim Anlegen
+ * der Partition dorthin verschoben. Alle Instanzen führen die Wartung aus; ein Advisory-Lock sorgt
+ * dafür, dass immer nur eine davon DDL auf {@code offer_data} ausführt.
+ */
+@Component
+public class OfferPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(OfferPartitions.class);
+
+    private static final Pattern WEEKLY = Pattern.compile("offer_data_p(\\d{8})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    // Schlüssel für pg_advisory_xact_lock, beliebig, aber für alle Instanzen gleich
+    private static final long LOCK_KEY = 7_023_001L;
+
+    // Wartet die DDL länger auf ihr Lock (z. B. hinter einem laufenden Export), wird sie beim nächsten Lauf wiederholt
+    private static final String LOCK_TIMEOUT = "set local lock_timeout = '5s'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int weeksAhead;
+    private final int retentionWeeks;
+    private final boolean dropDetached;
+
+    public OfferPartitions(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${prospekt.offers.partitions.weeks-ahead:4}") int weeksAhead,
+                           @Value("${prospekt.offers.partitions.retention-weeks:12}") int retentionWeeks,
+                           @Value("${prospekt.offers.partitions.drop-detached:true}") boolean dropDetached) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.weeksAhead = Math.max(0, weeksAhead);
+        this.retentionWeeks = retentionWeeks;
+        this.dropDetached = dropDetached;
+    }
+
+    @Scheduled(fixedDelayString = "${prospekt.offers.partitions.maintenance-interval:PT1H}", initialDelayString = "PT10S")
+    public void maintain() {
+        LocalDate currentWeek = LocalDate.now().with(DayOfWeek.MONDAY);
+        LocalDate cutoff = retentionWeeks > 0 ? currentWeek.minusWeeks(retentionWeeks) : null;
+        try {
+            Set<LocalDate> existing = partitionedWeeks();
+
+            Set<LocalDate> missing = new TreeSet<>(weeksInDefault(cutoff));
+            for (int i = 0; i <= weeksAhead; i++) {
+                missing.add(currentWeek.plusWeeks(i));
+            }
+            missing.removeAll(existing);
+            missing.forEach(this::create);
+
+            if (cutoff != null) {
+                existing.stream().filter(week -> !week.plusWeeks(1).isAfter(cutoff)).forEach(this::expire);
+                int purged = jdbcTemplate.update("delete from offer_data_default where offer_week < ?", cutoff);
+                if (purged > 0) {
+                    log.info("{} abgelaufene Angebote aus offer_data_default gelöscht", purged);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Wartung der Partitionen von offer_data fehlgeschlagen: {}", e.getMessage());
+        }
+    }
+
+    private Set<LocalDate> partitionedWeeks() {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                select c.relname
+                from pg_inherits i join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'offer_data'::regclass""", String.class);
+        Set<LocalDate> weeks = new TreeSet<>();
+        for (String partition : partitions) {
+            Matcher matcher = WEEKLY.matcher(partition);
+            if (matcher.matches()) {
+                weeks.add(LocalDate.parse(matcher.group(1), SUFFIX));
+            }
+        }
+        return weeks;
+    }
+
+    /**
+     * Wochen, deren Angebote ohne eigene Partition in {@code offer_data_default} liegen, ab {@code cutoff}
+     * ({@code null}: alle).
+     */
+    private List<LocalDate> weeksInDefault(LocalDate cutoff) {
+        if (cutoff == null) {
+            return jdbcTemplate.queryForList("select distinct offer_week from offer_data_default", LocalDate.class);
+        }
+        return jdbcTemplate.queryForList("select distinct offer_week from offer_data_default where offer_week >= ?",
+                LocalDate.class, cutoff);
+    }
+
+    /**
+     * Legt die Partition einer Woche an. Zeilen dieser Woche in der Default-Partition werden in
+     * derselben Transaktion verschoben, sonst lehnt Postgres die neue Partition ab.
+     */
+    private void create(LocalDate week) {
+        String partition = partitionName(week);
+        Integer moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(LOCK_TIMEOUT);
+            jdbcTemplate.execute("select pg_advisory_xact_lock(" + LOCK_KEY + ")");
+            if (exists(partition)) {
+                return null;
+            }
+            String columns = jdbcTemplate.queryForObject("""
+                    select string_agg(quote_ident(column_name), ', ' order by ordinal_position)
+                    from information_schema.columns
+                    where table_schema = current_schema() and table_name = 'offer_data' and is_generated = 'NEVER'""",
+                    String.class);
+            jdbcTemplate.execute("create temporary table offer_data_moved on commit drop as select " + columns
+                    + " from offer_data_default where offer_week = date '" + week + "'");
+            int rows = jdbcTemplate.update("delete from offer_data_default where offer_week = ?", week);
+            jdbcTemplate.execute("create table %s partition of offer_data for values from ('%s') to ('%s')"
+                    .formatted(partition, week, week.plusWeeks(1)));
+            if (rows > 0) {
+                jdbcTemplate.update("insert into offer_data (" + columns + ") select " + columns + " from offer_data_moved");
+            }
+            return rows;
+        });
+        if (moved != null) {
+            log.info("Partition {} angelegt ({} Angebote aus offer_data_default übernommen)", partition, moved);
+        }
+    }
+
+    /**
+     * Hängt die Partition einer abgelaufenen Woche ab und löscht sie. Beides ändert nur den Katalog;
+     * {@code DETACH ... CONCURRENTLY} ist neben einer Default-Partition nicht erlaubt, das kurze
+     * exklusive Lock auf {@code offer_data} ist aber unkritisch.
+     */
+    private void expire(LocalDate week) {
+        String partition = partitionName(week);
+        Boolean detached = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(LOCK_TIMEOUT);
+            jdbcTemplate.execute("select pg_advisory_xact_lock(" + LOCK_KEY + ")");
+            if (!exists(partition)) {
+                return false;
+            }
+            jdbcTemplate.execute("alter table offer_data detach partition " + partition);
+            if (dropDetached) {
+                jdbcTemplate.execute("drop table " + partition);
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(detached)) {
+            log.info("Angebotswoche {} abgelaufen: Partition {} {}", week, partition,
+                    dropDetached ? "gelöscht" : "abgehängt");
+        }
+    }
+
+    private boolean exists(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select to_regclass(?) is not null", Boolean.class, partition));
+    }
+
+    static String partitionName(LocalDate week) {
+        return "offer_data_p" + week.format(SUFFIX);
+    }
+}
@@ -3,32 +3,197 @@ package com.prospektai.demo.service;
 
 import com.prospektai.demo.Entity.OfferEntity;
 import com.prospektai.demo.repository.OfferDataRepository;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class OfferSaver {
 
     private static final Logger log = LoggerFactory.getLogger(OfferSaver.class);
 
+    /**
+     * Angebote mit gleichem {@link OfferKey} in derselben Angebotswoche werden nicht erneut
+     * eingefügt; Datei und Seite werden nur in {@code source_pdf_files} und {@code source_pages}
+     * ergänzt. Stammt das Angebot schon von dieser Seite, schreibt die Zeile gar nicht.
+     */
+    private static final String UPSERT_SQL = """
+            insert into offer_data (store_name, product_name, brand, product_description, quantity, price,
+                                    original_price, app_price, associated_pdf_file, calender_week,
+                                    offer_date_start, offer_date_end, price_cents, original_price_cents,
+                                    app_price_cents, base_quantity, base_unit, unit_price_cents, normalizer_version,
+                                    upload_file_id, page_index, offer_week, offer_key, source_pdf_files,
+                                    source_pages)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?,
+                    offer_week(?, ?, ?, current_date), ?, array_remove(array[?::text], null),
+                    array_remove(array[?::text], null))
+            on conflict (offer_key, offer_week) do update
+            set source_pdf_files = case when offer_data.source_pdf_files @> excluded.source_pdf_files
+                                        then offer_data.source_pdf_files
+                                        else offer_data.source_pdf_files || excluded.source_pdf_files end,
+                source_pages = case when offer_data.source_pages @> excluded.source_pages
+                                    then offer_data.source_pages
+                                    else offer_data.source_pages || excluded.source_pages end
+            where not (offer_data.source_pdf_files @> excluded.source_pdf_files
+                       and offer_data.source_pages @> excluded.source_pages)""";
+
+    /**
+     * Angebote, die nur von den freigegebenen Seiten stammen. Angebote aus der Zeit vor
+     * {@code source_pages} haben dort keinen Eintrag; eine weitere Datei in {@code source_pdf_files}
+     * zählt deshalb auch ohne Seite als Quelle.
+     */
+    private static final String DELETE_RELEASED_SQL = """
+            delete from offer_data
+            where source_pages && ? and source_pages <@ ?
+              and source_pdf_files <@ array(select filename::text from upload_file where id = ?)""";
+
+    /**
+     * Angebote, die auch von anderen Seiten stammen, behalten ihre Zeile und verlieren nur die
+     * freigegebenen Seiten. Die Datei verschwindet aus {@code source_pdf_files}, wenn keine
+     * verbleibende Seite aus einer gleichnamigen Datei stammt; Zuordnung und Upload-Seite gehen an
+     * die nächste verbleibende Quelle.
+     */
+    private static final String RELEASE_SHARED_SQL = """
+            with remaining as (
+                select o.id, o.offer_week, r.pages,
+                       case when exists (select 1 from unnest(r.pages) p join upload_file f on f.id = split_part(p, ':', 1)
+                                         where f.filename = u.filename)
+                            then o.source_pdf_files
+                            else array_remove(o.source_pdf_files, u.filename::text) end as files
+                from offer_data o
+                cross join lateral (select array(select p from unnest(o.source_pages) p where p <> all (?)) as pages) r
+                left join upload_file u on u.id = ?
+                where o.source_pages && ?)
+            update offer_data o
+            set source_pages = r.pages,
+                source_pdf_files = r.files,
+                associated_pdf_file = case when o.associated_pdf_file = any (r.files) then o.associated_pdf_file
+                                           else r.files[1] end,
+                upload_file_id = split_part(r.pages[1], ':', 1),
+                page_index = split_part(r.pages[1], ':', 2)::integer
+            from remaining r
+            where o.id = r.id and o.offer_week = r.offer_week""";
+
     private final OfferDataRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceNormalizer priceNormalizer;
+
+    @Value("${prospekt.persist.batch-size:100}")
+    private int batchSize;
 
+    /**
+     * Schreibt die Angebote einer Seite per JDBC-Batch in einer eigenen Transaktion. Die IDs
+     * vergibt die Datenbank; sie werden hier nicht zurückgelesen, weil Hibernate bei
+     * {@code IDENTITY} sonst jede Zeile einzeln einfügen müsste.
+     * <p>
+     * Dubletten erkennt die Datenbank am eindeutigen {@code offer_key} im selben Batch, ohne
+     * vorherige Abfrage. Die Zeilen werden nach Schlüssel sortiert geschrieben, damit sich zwei
+     * Seiten mit denselben Angeboten (z. B. Regionalausgaben) nicht gegenseitig blockieren.
+     */
+    @Transactional
     public void saveAll(List<OfferEntity> offers) {
         if (offers == null || offers.isEmpty()) {
             log.warn("Keine Angebote zum Speichern erhalten.");
             return;
         }
-        repository.saveAll(offers);
-        log.info("Insgesamt {} neue OfferData-Objekte gespeichert.", offers.size());
+        // Gleicher Schlüssel heißt gleiche offer_week (OfferKey enthält die Kalenderwoche), also dieselbe Zeile
+        Map<ByteBuffer, KeyedOffer> unique = new HashMap<>();
+        for (OfferEntity offer : offers) {
+            priceNormalizer.normalize(offer);
+            byte[] key = OfferKey.of(offer);
+            unique.putIfAbsent(ByteBuffer.wrap(key), new KeyedOffer(key, offer));
+        }
+        List<KeyedOffer> rows = new ArrayList<>(unique.values());
+        rows.sort((a, b) -> Arrays.compareUnsigned(a.key(), b.key()));
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, batchSize, (ps, row) -> {
+            OfferEntity offer = row.offer();
+            ps.setString(1, offer.getStoreName());
+            ps.setString(2, offer.getProductName());
+            ps.setString(3, offer.getBrand());
+            ps.setString(4, offer.getProductDescription());
+            ps.setString(5, offer.getQuantity());
+            ps.setString(6, offer.getPrice());
+            ps.setString(7, offer.getOriginalPrice());
+            ps.setString(8, offer.getAppPrice());
+            ps.setString(9, offer.getAssociatedPdfFile());
+            ps.setObject(10, offer.getCalenderWeek(), Types.SMALLINT);
+            ps.setObject(11, offer.getOfferDateStart(), Types.DATE);
+            ps.setObject(12, offer.getOfferDateEnd(), Types.DATE);
+            ps.setObject(13, offer.getPriceCents(), Types.INTEGER);
+            ps.setObject(14, offer.getOriginalPriceCents(), Types.INTEGER);
+            ps.setObject(15, offer.getAppPriceCents(), Types.INTEGER);
+            ps.setBigDecimal(16, offer.getBaseQuantity());
+            ps.setString(17, offer.getBaseUnit());
+            ps.setObject(18, offer.getUnitPriceCents(), Types.INTEGER);
+            ps.setObject(19, offer.getNormalizerVersion(), Types.SMALLINT);
+            ps.setString(20, offer.getUploadFileId());
+            ps.setObject(21, offer.getPageIndex(), Types.INTEGER);
+            // Partitionsschlüssel, siehe V2__partition_offer_data.sql
+            ps.setObject(22, offer.getCalenderWeek(), Types.SMALLINT);
+            ps.setObject(23, offer.getOfferDateStart(), Types.DATE);
+            ps.setObject(24, offer.getOfferDateEnd(), Types.DATE);
+            ps.setBytes(25, row.key());
+            ps.setString(26, offer.getAssociatedPdfFile());
+            ps.setString(27, offer.getUploadFileId() != null ? sourcePage(offer.getUploadFileId(), offer.getPageIndex()) : null);
+        });
+        // Mit reWriteBatchedInserts meldet der Treiber keine Zeilenzahlen (SUCCESS_NO_INFO)
+        log.info("{} Angebote verarbeitet, {} davon eindeutig.", offers.size(), rows.size());
+    }
+
+    /**
+     * Gibt Seiten einer Datei frei, bevor sie erneut verarbeitet werden oder fehlschlagen: Angebote,
+     * die nur von diesen Seiten stammen, werden gelöscht, mit anderen Seiten oder Dateien
+     * zusammengeführte Angebote bleiben erhalten. Läuft in der Transaktion des Aufrufers.
+     */
+    public void releasePages(String fileId, List<Integer> pageIndices) {
+        String[] pages = pageIndices.stream().map(pageIndex -> sourcePage(fileId, pageIndex)).toArray(String[]::new);
+        int deleted = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_RELEASED_SQL);
+            Array released = con.createArrayOf("text", pages);
+            ps.setArray(1, released);
+            ps.setArray(2, released);
+            ps.setString(3, fileId);
+            return ps;
+        });
+        int kept = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(RELEASE_SHARED_SQL);
+            Array released = con.createArrayOf("text", pages);
+            ps.setArray(1, released);
+            ps.setString(2, fileId);
+            ps.setArray(3, released);
+            return ps;
+        });
+        if (deleted > 0 || kept > 0) {
+            log.info("Seiten {} von Datei {} freigegeben: {} Angebote gelöscht, {} zusammengeführte behalten.",
+                    pageIndices, fileId, deleted, kept);
+        }
+    }
+
+    static String sourcePage(String fileId, Integer pageIndex) {
+        return fileId + ":" + pageIndex;
     }
 
     public void deleteAll() {
         repository.deleteAll();
         log.info("Alle OfferData-Objekte wurden gelöscht.");
     }
+
+    private record KeyedOffer(byte[] key, OfferEntity offer) {
+    }
 }
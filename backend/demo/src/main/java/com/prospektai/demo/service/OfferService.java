@@ -3,6 +3,11 @@ package com.prospektai.demo.service;
 
 import com.prospektai.demo.repository.OfferDataRepository;
 import com.prospektai.demo.Entity.OfferEntity;
+import com.prospektai.demo.repository.OfferPage;
+import com.prospektai.demo.repository.OfferQuery;
+import com.prospektai.demo.repository.OfferQueryRepository;
+import com.prospektai.demo.repository.OfferSearchRepository;
+import com.prospektai.demo.repository.StoreComparison;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,11 +15,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.Normalizer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Collections;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -22,21 +32,43 @@ public class OfferService {
 
     private static final Logger log = LoggerFactory.getLogger(OfferService.class);
     private final OfferDataRepository offerDataRepository;
-    private final PdfProcessingService pdfProcessingService;
+    private final UploadJobService uploadJobService;
+    private final OfferQueryRepository offerQueryRepository;
+    private final OfferSearchRepository offerSearchRepository;
+    private final PdfMemoryLimits memoryLimits;
 
-    public void uploadFile(List<MultipartFile> files, int pagesPerChunk) {
+    /**
+     * Übernimmt die Dateien aus dem Multipart-Request und stellt ihre Seiten in die
+     * Warteschlange. Die Dateien werden dafür in temporäre Dateien übertragen und von dort in
+     * die Datenbank gestreamt, ohne den Inhalt in den Heap zu lesen.
+     *
+     * @return die ID des Jobs
+     */
+    public String uploadFile(List<MultipartFile> files, int pagesPerChunk) throws IOException {
         log.info("Upload-Endpoint aufgerufen mit {} Dateien", files.size());
 
-        for (MultipartFile file : files) {
-            log.info("Verarbeite Datei: {}, Größe: {} bytes", file.getOriginalFilename(), file.getSize());
+        List<UploadedPdf> pdfs = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                log.info("Übernehme Datei: {}, Größe: {} bytes", file.getOriginalFilename(), file.getSize());
+                Path target = memoryLimits.createTempFile("upload-");
+                pdfs.add(new UploadedPdf(UUID.randomUUID().toString(), target, resolveFilename(file)));
+                file.transferTo(target);
+            }
+            return uploadJobService.submit(pdfs, pagesPerChunk);
+        } finally {
+            for (UploadedPdf pdf : pdfs) {
+                Files.deleteIfExists(pdf.file());
+            }
         }
+    }
 
-        try {
-            pdfProcessingService.processPdf(files, pagesPerChunk);
-            log.info("processPdf erfolgreich durchgelaufen für {} Dateien", files.size());
-        } catch (Exception e) {
-            log.error("Fehler bei der Verarbeitung der PDFs:", e);
+    private String resolveFilename(MultipartFile file) {
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || originalFilename.isBlank()) {
+            return "upload-" + UUID.randomUUID() + ".pdf";
         }
+        return originalFilename;
     }
 
     public List<OfferEntity> getAllOffers() {
@@ -49,6 +81,25 @@ public class OfferService {
         }
     }
 
+    public OfferPage queryOffers(OfferQuery query) {
+        log.info("queryOffers: {}", query);
+        return offerQueryRepository.find(query);
+    }
+
+    public List<OfferEntity> searchOffers(String q, Byte calenderWeek, String storeName, int limit) {
+        long start = System.nanoTime();
+        List<OfferEntity> offers = offerSearchRepository.search(q.trim(), calenderWeek, storeName, limit);
+        log.info("Suche '{}' lieferte {} Angebote in {} ms", q, offers.size(), (System.nanoTime() - start) / 1_000_000);
+        return offers;
+    }
+
+    public List<StoreComparison> compareStores(String q, byte calenderWeek, int perStore, boolean perUnit, String baseUnit) {
+        long start = System.nanoTime();
+        List<StoreComparison> stores = offerSearchRepository.compare(q.trim(), calenderWeek, perStore, perUnit, baseUnit);
+        log.info("Preisvergleich '{}' KW {}: {} Märkte in {} ms", q, calenderWeek, stores.size(), (System.nanoTime() - start) / 1_000_000);
+        return stores;
+    }
+
     public void deleteSingleOffer(Long id) {
         try {
             offerDataRepository.deleteById(id);
@@ -62,6 +113,7 @@ public class OfferService {
     public void deleteOffersByFile(String filename){
         log.info("Versuche Angebote zu löschen für Datei='{}'", filename);
         try {
+            offerDataRepository.removeSourcePdfFile(filename);
             offerDataRepository.deleteByAssociatedPdfFile(filename);
             log.info("Löschvorgang abgeschlossen für Datei='{}'", filename);
         } catch (Exception e) {
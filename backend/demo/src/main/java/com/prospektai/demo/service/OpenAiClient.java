@@ -1,19 +1,39 @@
 package com.prospektai.demo.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.prospektai.demo.Entity.OfferEntity;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.client.WebClient;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import reactor.core.publisher.Mono;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Component
 @RequiredArgsConstructor
@@ -21,8 +41,18 @@ public class OpenAiClient {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAiClient.class);
 
+    /** Bei Änderungen am Antwortschema erhöhen, damit alte Cache-Einträge nicht mehr passen. */
+    private static final int SCHEMA_VERSION = 1;
+
+    private static final String TEXT_ONLY = "Textebene der Seite (kein Bild):\n";
+    private static final String TEXT_WITH_THUMBNAIL =
+            "Textebene der Seite; Preise und Produktnamen aus dem Text übernehmen, das folgende Vorschaubild zeigt nur die Anordnung:\n";
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_STRING = new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final LlmCallGuard llmCallGuard;
 
     @Value("${spring.ai.openai.system-prompt}")
     private String systemPrompt;
@@ -33,19 +63,318 @@ public class OpenAiClient {
     @Value("${spring.ai.openai.model}")
     private String model;
 
-    public List<OfferEntity> extractOffers(Path imagePath) throws Exception {
-        byte[] bytes = Files.readAllBytes(imagePath);
-        String dataUrl = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(bytes);
+    @Value("${prospekt.llm.client.call-timeout:PT3M}")
+    private Duration callTimeout;
 
-        var messages = List.of(
-                Map.of("role", "system", "content", systemPrompt),
-                Map.of("role", "user", "content", List.of(
-                        Map.of("type", "text", "content", userPrompt),
-                        Map.of("type", "image_url", "image_url", Map.of("format", "image/jpeg", "url", dataUrl))
-                ))
-        );
+    @Value("${prospekt.llm.client.stream-idle-timeout:PT60S}")
+    private Duration streamIdleTimeout;
+
+    @Value("${prospekt.llm.streaming.include-usage:true}")
+    private boolean streamIncludeUsage;
+
+    private String responseFormatSingle;
+    private String responseFormatBatched;
+
+    @PostConstruct
+    void precompileSchema() throws IOException {
+        responseFormatSingle = objectMapper.writeValueAsString(responseFormat(false));
+        responseFormatBatched = objectMapper.writeValueAsString(responseFormat(true));
+    }
+
+    /**
+     * Fingerabdruck aus Modell, Prompts und Schema. Ändert sich einer davon, liefert der
+     * {@link ExtractionCache} keine alten Ergebnisse mehr.
+     */
+    public String promptFingerprint() {
+        return String.join("\u0000", model, String.valueOf(SCHEMA_VERSION), systemPrompt, userPrompt);
+    }
+
+    public List<OfferEntity> extractOffers(EncodedImage image) throws Exception {
+        return extractOffers(List.of(image), null, usage -> {}).get(0);
+    }
+
+    /**
+     * Extrahiert die Angebote mehrerer aufeinanderfolgender Seiten in einem Request.
+     *
+     * @param images  Seitenbilder in Seitenreihenfolge
+     * @param context bereits bekannter Kontext aus vorherigen Seiten (Markt, Zeitraum), oder {@code null}
+     * @param onUsage erhält den Token-Verbrauch, sofern die Antwort einen {@code usage}-Block enthält
+     * @return je Bild die Liste der Angebote, in derselben Reihenfolge wie {@code images}
+     */
+    public List<List<OfferEntity>> extractOffers(List<EncodedImage> images, String context, Consumer<Usage> onUsage) throws Exception {
+        BodyInserter<Void, ClientHttpRequest> body = requestBody(images, context, false);
+
+        JsonNode response = llmCallGuard.call("extract", () -> webClient.post()
+                .uri("/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(callTimeout)
+                .block());
+
+        if (response == null) throw new RuntimeException("Keine Antwort von LLM erhalten");
+
+        Usage.of(response.path("usage")).ifPresent(onUsage);
+        return parseOffers(response.path("choices").path(0).path("message").path("content").asText(""), images.size());
+    }
+
+    /**
+     * Liest die Angebote aus dem Inhalt einer nicht gestreamten Antwort, auch wenn das Modell sie
+     * in einen {@code ```json}-Block eingefasst hat.
+     */
+    List<List<OfferEntity>> parseOffers(String content, int pages) throws IOException {
+        String contentText = content.replaceFirst("^```json\\s*", "").replaceAll("```\\s*$", "").trim();
+        if (contentText.isEmpty()) throw new RuntimeException("Keine gültige Antwort erhalten");
+
+        JsonNode offersNode = objectMapper.readTree(contentText).get("offers");
+        if (offersNode == null) throw new RuntimeException("Antwort enthält kein 'offers' Feld");
+
+        List<List<OfferEntity>> offersByPage = emptyPages(pages);
+        int invalid = 0;
+        for (JsonNode offerNode : offersNode) {
+            int pageIndex = pageIndex(offerNode, pages);
+            if (pageIndex < 0) {
+                invalid++;
+                continue;
+            }
+            offersByPage.get(pageIndex).add(objectMapper.convertValue(offerNode, OfferEntity.class));
+        }
+        logInvalidPageIndex(invalid, pages);
+        return offersByPage;
+    }
+
+    /**
+     * Wie {@link #extractOffers(List, String, Consumer)}, aber mit {@code stream: true}. Jedes Angebot wird
+     * an {@code onOffer} übergeben, sobald sein JSON-Objekt vollständig empfangen ist. Der
+     * Callback läuft im aufrufenden Thread und darf blockieren. Ein abgebrochener Stream wird nur
+     * wiederholt, solange noch kein Angebot an {@code onOffer} ging.
+     *
+     * @return das vollständige Ergebnis je Seite; die Instanzen sind unabhängig von denen, die
+     * an {@code onOffer} gingen
+     */
+    public List<List<OfferEntity>> streamOffers(List<EncodedImage> images, String context,
+                                                BiConsumer<Integer, OfferEntity> onOffer, Consumer<Usage> onUsage) throws Exception {
+        BodyInserter<Void, ClientHttpRequest> body = requestBody(images, context, true);
+        AtomicBoolean emitted = new AtomicBoolean();
+        return llmCallGuard.call("stream", () -> readStream(body, images.size(), (pageIndex, offer) -> {
+            emitted.set(true);
+            onOffer.accept(pageIndex, offer);
+        }, onUsage), () -> !emitted.get());
+    }
+
+    private List<List<OfferEntity>> readStream(BodyInserter<Void, ClientHttpRequest> body, int pages,
+                                               BiConsumer<Integer, OfferEntity> onOffer, Consumer<Usage> onUsage) throws Exception {
+        StreamingOfferParser parser = new StreamingOfferParser(objectMapper);
+        List<List<OfferEntity>> offersByPage = emptyPages(pages);
+        int invalid = 0;
+
+        // Timeout bis zum ersten und zwischen zwei Events, nicht für den ganzen Stream
+        Iterable<ServerSentEvent<String>> events = webClient.post()
+                .uri("/chat/completions")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body)
+                .retrieve()
+                .bodyToFlux(SSE_STRING)
+                .timeout(streamIdleTimeout)
+                .toIterable();
+
+        for (ServerSentEvent<String> event : events) {
+            String data = event.data();
+            if (data == null || data.isBlank()) continue;
+            if ("[DONE]".equals(data.trim())) break;
 
-        var responseFormat = Map.of(
+            JsonNode chunk = objectMapper.readTree(data);
+            // Mit stream_options.include_usage kommt der Verbrauch im letzten Event ohne choices
+            Usage.of(chunk.path("usage")).ifPresent(onUsage);
+            String fragment = chunk.path("choices").path(0).path("delta").path("content").asText("");
+            for (JsonNode offerNode : parser.feed(fragment)) {
+                int pageIndex = pageIndex(offerNode, pages);
+                if (pageIndex < 0) {
+                    invalid++;
+                    continue;
+                }
+                OfferEntity offer = objectMapper.convertValue(offerNode, OfferEntity.class);
+                offersByPage.get(pageIndex).add(offer);
+                onOffer.accept(pageIndex, offer);
+            }
+        }
+
+        if (!parser.isComplete()) throw new RuntimeException("Stream endete vor dem Abschluss der Antwort");
+        logInvalidPageIndex(invalid, pages);
+        return offersByPage;
+    }
+
+    /**
+     * Schreibt den Request direkt in den Puffer der ausgehenden Verbindung. Schema und Prompts
+     * liegen seit dem Start als fertiges JSON vor; die Bilder werden beim Schreiben base64-kodiert,
+     * ohne dass der kodierte Text oder die Data-URL als String im Heap entstehen. Der Inserter
+     * wird bei jeder Wiederholung erneut ausgeführt.
+     */
+    private BodyInserter<Void, ClientHttpRequest> requestBody(List<EncodedImage> images, String context, boolean stream) {
+        log.debug(" Payload (kurz): model={}, images={}, stream={}", model, images.size(), stream);
+        return (message, ignored) -> {
+            DataBuffer buffer = message.bufferFactory().allocateBuffer(estimateSize(images, context));
+            try (OutputStream out = buffer.asOutputStream()) {
+                writePayload(out, images, context, stream);
+            } catch (IOException | RuntimeException e) {
+                DataBufferUtils.release(buffer);
+                return Mono.error(e);
+            }
+            return message.writeWith(Mono.just(buffer));
+        };
+    }
+
+    void writePayload(OutputStream out, List<EncodedImage> images, String context, boolean stream) throws IOException {
+        boolean batched = images.size() > 1;
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("model", model);
+            gen.writeArrayFieldStart("messages");
+
+            gen.writeStartObject();
+            gen.writeStringField("role", "system");
+            gen.writeStringField("content", systemPrompt);
+            gen.writeEndObject();
+
+            gen.writeStartObject();
+            gen.writeStringField("role", "user");
+            gen.writeArrayFieldStart("content");
+            writeText(gen, userPrompt);
+            if (context != null && !context.isBlank()) {
+                writeText(gen, "Bekannt aus vorherigen Seiten: " + context);
+            }
+            if (batched) {
+                writeText(gen, "Die folgenden " + images.size() + " Einträge sind aufeinanderfolgende Seiten desselben Prospekts. "
+                        + "Gib bei jedem Angebot in pageIndex die Nummer der Seite an (0 bis " + (images.size() - 1) + ").");
+            }
+            for (int i = 0; i < images.size(); i++) {
+                EncodedImage image = images.get(i);
+                if (batched) {
+                    writeText(gen, "pageIndex " + i + ":");
+                }
+                if (image.text() != null) {
+                    writeText(gen, (image.hasImage() ? TEXT_WITH_THUMBNAIL : TEXT_ONLY) + image.text());
+                }
+                if (image.hasImage()) {
+                    gen.writeStartObject();
+                    gen.writeStringField("type", "image_url");
+                    gen.writeObjectFieldStart("image_url");
+                    gen.writeStringField("format", image.mimeType());
+                    gen.writeFieldName("url");
+                    writeDataUrl(gen, out, image);
+                    gen.writeEndObject();
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeEndArray();
+
+            gen.writeFieldName("response_format");
+            gen.writeRawValue(batched ? responseFormatBatched : responseFormatSingle);
+            if (stream) {
+                gen.writeBooleanField("stream", true);
+                if (streamIncludeUsage) {
+                    gen.writeObjectFieldStart("stream_options");
+                    gen.writeBooleanField("include_usage", true);
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeText(JsonGenerator gen, String text) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "text");
+        gen.writeStringField("text", text);
+        gen.writeEndObject();
+    }
+
+    /**
+     * Schreibt {@code "data:<mime>;base64,<bild>"} am Generator vorbei in {@code out}. Der
+     * Generator sieht nur den Anfang des Werts; danach wird er geleert, damit die Reihenfolge im
+     * Puffer stimmt.
+     */
+    private static void writeDataUrl(JsonGenerator gen, OutputStream out, EncodedImage image) throws IOException {
+        gen.writeRawValue("\"data:" + image.mimeType() + ";base64,");
+        gen.flush();
+        try (OutputStream base64 = Base64.getEncoder().wrap(new NonClosingOutputStream(out))) {
+            base64.write(image.data());
+        }
+        out.write('"');
+    }
+
+    private int estimateSize(List<EncodedImage> images, String context) {
+        long size = 1024L + systemPrompt.length() + userPrompt.length() + responseFormatBatched.length()
+                + (context != null ? context.length() : 0);
+        for (EncodedImage image : images) {
+            size += 4L * ((image.data().length + 2) / 3) + 128;
+            if (image.text() != null) {
+                size += image.text().length() + image.text().length() / 4 + 128;
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+
+    private static List<List<OfferEntity>> emptyPages(int pages) {
+        List<List<OfferEntity>> offersByPage = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            offersByPage.add(new ArrayList<>());
+        }
+        return offersByPage;
+    }
+
+    /**
+     * Liest und entfernt {@code pageIndex} aus einem Angebot einer Mehrseiten-Antwort.
+     *
+     * @return die Seite, oder {@code -1}, wenn sie fehlt oder außerhalb des Requests liegt; ein
+     * solches Angebot lässt sich keiner Seite sicher zuordnen
+     */
+    private static int pageIndex(JsonNode offerNode, int pages) {
+        if (pages <= 1) {
+            return 0;
+        }
+        if (!(offerNode instanceof ObjectNode objectNode)) {
+            return -1;
+        }
+        JsonNode value = objectNode.remove("pageIndex");
+        if (value == null || !value.isIntegralNumber() || !value.canConvertToInt()) {
+            return -1;
+        }
+        int pageIndex = value.intValue();
+        return pageIndex >= 0 && pageIndex < pages ? pageIndex : -1;
+    }
+
+    private static void logInvalidPageIndex(int invalid, int pages) {
+        if (invalid > 0) {
+            log.warn("{} Angebote ohne gültigen pageIndex (0 bis {}) verworfen", invalid, pages - 1);
+        }
+    }
+
+    private static Map<String, Object> responseFormat(boolean withPageIndex) {
+        Map<String, Object> properties = new LinkedHashMap<>(Map.ofEntries(
+                Map.entry("storeName", Map.of("type", "string")),
+                Map.entry("productName", Map.of("type", "string")),
+                Map.entry("brand", Map.of("type", "string", "nullable", true)),
+                Map.entry("productDescription", Map.of("type", "string")),
+                Map.entry("quantity", Map.of("type", "string")),
+                Map.entry("price", Map.of("type", "number")),
+                Map.entry("originalPrice", Map.of("type", "string", "nullable", true)),
+                Map.entry("appPrice", Map.of("type", "string", "nullable", true)),
+                Map.entry("offerDateStart", Map.of("type", "string")),
+                Map.entry("offerDateEnd", Map.of("type", "string")),
+                Map.entry("calenderWeek", Map.of("type", "number"))
+        ));
+        List<String> required = new ArrayList<>(List.of("storeName","productName","productDescription","quantity","brand","originalPrice","price","appPrice","offerDateStart","offerDateEnd","calenderWeek"));
+        if (withPageIndex) {
+            properties.put("pageIndex", Map.of("type", "integer"));
+            required.add("pageIndex");
+        }
+
+        return Map.of(
                 "type", "json_schema",
                 "json_schema", Map.of(
                         "name", "extract_offers_response",
@@ -56,20 +385,8 @@ public class OpenAiClient {
                                         "type", "array",
                                         "items", Map.of(
                                                 "type", "object",
-                                "properties", Map.ofEntries(
-                                        Map.entry("storeName", Map.of("type", "string")),
-                                        Map.entry("productName", Map.of("type", "string")),
-                                        Map.entry("brand", Map.of("type", "string", "nullable", true)),
-                                        Map.entry("productDescription", Map.of("type", "string")),
-                                        Map.entry("quantity", Map.of("type", "string")),
-                                        Map.entry("price", Map.of("type", "number")),
-                                        Map.entry("originalPrice", Map.of("type", "string", "nullable", true)),
-                                        Map.entry("appPrice", Map.of("type", "string", "nullable", true)),
-                                        Map.entry("offerDateStart", Map.of("type", "string")),
-                                        Map.entry("offerDateEnd", Map.of("type", "string")),
-                                        Map.entry("calenderWeek", Map.of("type", "number"))
-                                ),
-                                                "required", List.of("storeName","productName","productDescription","quantity","brand","originalPrice","price","appPrice","offerDateStart","offerDateEnd","calenderWeek"),
+                                                "properties", properties,
+                                                "required", required,
                                                 "additionalProperties", false
                                         )
                                 )),
@@ -78,34 +395,37 @@ public class OpenAiClient {
                         )
                 )
         );
+    }
 
-        var payload = Map.of(
-                "model", model,
-                "messages", messages,
-                "response_format", responseFormat
-        );
-
-        log.debug(" Payload (kurz): model={}, messagesCount={}", model, messages.size());
-
-        JsonNode response = webClient.post()
-                .uri("/chat/completions")
-                .bodyValue(payload)
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .block();
+    /**
+     * Lässt das Schließen durch den base64-Encoder nicht an den Puffer durch.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
 
-        if (response == null) throw new RuntimeException("Keine Antwort von LLM erhalten");
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
 
-        String contentText = response.path("choices").path(0).path("message").path("content").asText("");
-        contentText = contentText.replaceFirst("^```json\\s*", "").replaceAll("```\\s*$", "").trim();
-        if (contentText.isEmpty()) throw new RuntimeException("Keine gültige Antwort erhalten");
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 
-        JsonNode offersNode = objectMapper.readTree(contentText).get("offers");
-        if (offersNode == null) throw new RuntimeException("Antwort enthält kein 'offers' Feld");
+    /**
+     * Token-Verbrauch eines Requests aus dem {@code usage}-Block der Chat-Completion.
+     */
+    public record Usage(long promptTokens, long completionTokens) {
 
-        return objectMapper.convertValue(
-                offersNode,
-                objectMapper.getTypeFactory().constructCollectionType(List.class, OfferEntity.class)
-        );
+        static Optional<Usage> of(JsonNode usage) {
+            if (!usage.isObject()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Usage(usage.path("prompt_tokens").asLong(0), usage.path("completion_tokens").asLong(0)));
+        }
     }
 }
@@ -0,0 +1,130 @@
+package com.prospektai.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Auf dieser Instanz geöffnete PDFs. Holen sich mehrere Worker nacheinander Seiten derselben
+ * Datei, wird das Dokument nur einmal aus der Datenbank geladen und geparst. Dateien ohne
+ * Benutzer werden nach {@code prospekt.queue.file-idle-timeout} geschlossen.
+ */
+@Component
+@RequiredArgsConstructor
+public class OpenPdfFiles {
+
+    private final JobCheckpointStore checkpointStore;
+    private final PdfMemoryLimits memoryLimits;
+    private final Map<String, OpenFile> files = new HashMap<>();
+
+    @Value("${prospekt.queue.file-idle-timeout:PT2M}")
+    private Duration idleTimeout;
+
+    /**
+     * Öffnet die Datei oder liefert die bereits offene Instanz. Jeder Aufruf muss mit
+     * {@link #release(OpenFile)} beendet werden.
+     *
+     * @throws IllegalStateException wenn der Inhalt der Datei nicht mehr vorliegt
+     */
+    public OpenFile acquire(String fileId) throws IOException {
+        synchronized (files) {
+            OpenFile open = files.get(fileId);
+            if (open != null) {
+                open.users++;
+                return open;
+            }
+        }
+
+        // Laden und Parsen außerhalb der Sperre; öffnen zwei Worker gleichzeitig, gewinnt der erste
+        Path file = memoryLimits.createTempFile("open-");
+        OpenFile loaded;
+        try {
+            JobCheckpointStore.StoredFile stored = checkpointStore.loadFile(fileId, file)
+                    .orElseThrow(() -> new IllegalStateException("Inhalt der Datei " + fileId + " liegt nicht mehr vor"));
+            loaded = new OpenFile(stored.pdf().id(), stored.pdf().originalFilename(),
+                    new PdfSource(file, memoryLimits::memoryUsage));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        OpenFile open;
+        synchronized (files) {
+            open = files.putIfAbsent(fileId, loaded);
+            if (open == null) {
+                loaded.users++;
+                return loaded;
+            }
+            open.users++;
+        }
+        loaded.source().close();
+        return open;
+    }
+
+    public void release(OpenFile file) {
+        synchronized (files) {
+            file.users--;
+            file.lastUsed = Instant.now();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "PT30S", initialDelayString = "PT30S")
+    public void closeIdle() {
+        Instant threshold = Instant.now().minus(idleTimeout);
+        synchronized (files) {
+            Iterator<OpenFile> it = files.values().iterator();
+            while (it.hasNext()) {
+                OpenFile file = it.next();
+                if (file.users == 0 && file.lastUsed.isBefore(threshold)) {
+                    file.source().close();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        synchronized (files) {
+            files.values().forEach(file -> file.source().close());
+            files.clear();
+        }
+    }
+
+    public static final class OpenFile {
+        private final String fileId;
+        private final String filename;
+        private final PdfSource source;
+        private int users;
+        private Instant lastUsed = Instant.now();
+
+        private OpenFile(String fileId, String filename, PdfSource source) {
+            this.fileId = fileId;
+            this.filename = filename;
+            this.source = source;
+        }
+
+        public String fileId() {
+            return fileId;
+        }
+
+        public String filename() {
+            return filename;
+        }
+
+        public PdfSource source() {
+            return source;
+        }
+    }
+}
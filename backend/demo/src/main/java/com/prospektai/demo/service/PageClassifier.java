@@ -0,0 +1,195 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties;
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.util.Matrix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Schätzt vor dem Rendern, ob eine Seite überhaupt Angebote enthält. Titelseiten ohne Preise,
+ * Rezepte, Filialverzeichnisse und ganzseitige Markenanzeigen liefern keine Angebote, kosten
+ * aber einen vollen LLM-Aufruf.
+ * <p>
+ * Mit Textebene zählen Preismuster ({@code 1,99}, {@code 2.-}, {@code €}, {@code %}), der
+ * Ziffernanteil und die Fläche eingebetteter Bilder. Ohne Textebene bleibt nur die Kantendichte
+ * einer kleinen Vorschau; damit werden lediglich fast leere Seiten erkannt.
+ */
+@Component
+public class PageClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(PageClassifier.class);
+
+    private static final Pattern PRICE = Pattern.compile("(?<![\\d.,])\\d{1,4}\\s?[.,]\\s?(\\d{2}|-{1,2}|–)(?![\\d.,])|€|\\bEUR\\b|%");
+
+    /** Unterhalb davon gilt die Textebene als nicht vorhanden. */
+    private static final int MIN_TEXT_CHARS = 30;
+
+    public enum Mode { OFF, OBSERVE, SKIP }
+
+    private final RenderProperties renderProperties;
+    private final Mode mode;
+    private final double threshold;
+    private final int pricesForFullScore;
+    private final double scanEdgeDensity;
+
+    public PageClassifier(RenderProperties renderProperties,
+                          @Value("${prospekt.prefilter.mode:OBSERVE}") Mode mode,
+                          @Value("${prospekt.prefilter.threshold:0.15}") double threshold,
+                          @Value("${prospekt.prefilter.prices-for-full-score:3}") int pricesForFullScore,
+                          @Value("${prospekt.prefilter.scan-edge-density:0.02}") double scanEdgeDensity) {
+        this.renderProperties = renderProperties;
+        this.mode = mode;
+        this.threshold = threshold;
+        this.pricesForFullScore = Math.max(1, pricesForFullScore);
+        this.scanEdgeDensity = scanEdgeDensity;
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    /**
+     * @param text Textebene aus {@link TextLayerAnalyzer#analyze}
+     */
+    public Verdict classify(PDDocument document, PDFRenderer renderer, int pageIndex,
+                            TextLayerAnalyzer.PageText text) throws IOException {
+        double score;
+        String signals;
+        if (text != null && text.visibleChars() >= MIN_TEXT_CHARS) {
+            int prices = countPrices(text.text());
+            double imageCoverage = imageCoverage(document.getPage(pageIndex));
+            score = 0.7 * Math.min(1, (double) prices / pricesForFullScore)
+                    + 0.2 * Math.min(1, text.digitRatio() / 0.15)
+                    + 0.1 * (1 - imageCoverage);
+            signals = String.format("preise=%d, ziffern=%.2f, bildfläche=%.2f", prices, text.digitRatio(), imageCoverage);
+        } else {
+            BufferedImage thumbnail = renderer.renderImageWithDPI(pageIndex, renderProperties.thumbnailDpi(), ImageType.GRAY);
+            double edges = PageRenderer.edgeDensity(thumbnail);
+            score = Math.min(1, edges / scanEdgeDensity);
+            signals = String.format("ohne Textebene, kantendichte=%.3f", edges);
+        }
+
+        boolean below = score < threshold;
+        if (below) {
+            log.info("Seite {} sieht nicht nach Angeboten aus (score {}, {}){}", pageIndex + 1,
+                    String.format("%.2f", score), signals, mode == Mode.SKIP ? ", wird übersprungen" : "");
+        }
+        return new Verdict(score, below && mode == Mode.SKIP);
+    }
+
+    private static int countPrices(String text) {
+        Matcher matcher = PRICE.matcher(text);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Anteil der Seitenfläche, den eingebettete Bilder einnehmen (überlappende Bilder zählen doppelt).
+     */
+    private static double imageCoverage(PDPage page) throws IOException {
+        PDRectangle box = page.getCropBox();
+        double pageArea = (double) box.getWidth() * box.getHeight();
+        if (pageArea <= 0) {
+            return 0;
+        }
+        ImageAreaEngine engine = new ImageAreaEngine(page);
+        engine.processPage(page);
+        return Math.min(1, engine.area / pageArea);
+    }
+
+    /**
+     * @param skip {@code true}, wenn die Seite nicht an das LLM gehen soll
+     */
+    public record Verdict(double score, boolean skip) {
+    }
+
+    /**
+     * Summiert die Fläche aller gezeichneten Bilder; Pfade und Text werden ignoriert.
+     */
+    private static final class ImageAreaEngine extends PDFGraphicsStreamEngine {
+        private final Point2D.Float current = new Point2D.Float();
+        private double area;
+
+        ImageAreaEngine(PDPage page) {
+            super(page);
+        }
+
+        @Override
+        public void drawImage(PDImage image) {
+            // Bilder werden ins Einheitsquadrat gezeichnet; die Determinante der CTM ist ihre Fläche
+            Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+            area += Math.abs(ctm.getScaleX() * ctm.getScaleY() - ctm.getShearX() * ctm.getShearY());
+        }
+
+        @Override
+        public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        }
+
+        @Override
+        public void clip(int windingRule) {
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            current.setLocation(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            current.setLocation(x, y);
+        }
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            current.setLocation(x3, y3);
+        }
+
+        @Override
+        public Point2D getCurrentPoint() {
+            return current;
+        }
+
+        @Override
+        public void closePath() {
+        }
+
+        @Override
+        public void endPath() {
+        }
+
+        @Override
+        public void strokePath() {
+        }
+
+        @Override
+        public void fillPath(int windingRule) {
+        }
+
+        @Override
+        public void fillAndStrokePath(int windingRule) {
+        }
+
+        @Override
+        public void shadingFill(COSName shadingName) {
+        }
+    }
+}
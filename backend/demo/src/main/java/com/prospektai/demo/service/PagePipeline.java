@@ -0,0 +1,60 @@
+package com.prospektai.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Die vier Stufen der Seitenverarbeitung. Die Stufen werden von allen Jobs gemeinsam genutzt,
+ * sodass die konfigurierte Parallelität auch bei mehreren gleichzeitigen Uploads gilt.
+ */
+@Component
+public class PagePipeline {
+
+    private final PipelineStage render;
+    private final PipelineStage encode;
+    private final PipelineStage llm;
+    private final PipelineStage persist;
+
+    public PagePipeline(
+            @Value("${prospekt.pipeline.render.parallelism:2}") int renderParallelism,
+            @Value("${prospekt.pipeline.render.queue-capacity:2}") int renderQueue,
+            @Value("${prospekt.pipeline.encode.parallelism:2}") int encodeParallelism,
+            @Value("${prospekt.pipeline.encode.queue-capacity:4}") int encodeQueue,
+            @Value("${prospekt.pipeline.llm.parallelism:8}") int llmParallelism,
+            @Value("${prospekt.pipeline.llm.queue-capacity:8}") int llmQueue,
+            @Value("${prospekt.pipeline.persist.parallelism:2}") int persistParallelism,
+            @Value("${prospekt.pipeline.persist.queue-capacity:16}") int persistQueue) {
+        this.render = new PipelineStage("render", renderParallelism, renderQueue, false);
+        this.encode = new PipelineStage("encode", encodeParallelism, encodeQueue, false);
+        this.llm = new PipelineStage("llm", llmParallelism, llmQueue, true);
+        this.persist = new PipelineStage("persist", persistParallelism, persistQueue, false);
+    }
+
+    public PipelineStage render() {
+        return render;
+    }
+
+    public PipelineStage encode() {
+        return encode;
+    }
+
+    public PipelineStage llm() {
+        return llm;
+    }
+
+    public PipelineStage persist() {
+        return persist;
+    }
+
+    public List<PipelineStage> stages() {
+        return List.of(render, encode, llm, persist);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stages().forEach(PipelineStage::shutdown);
+    }
+}
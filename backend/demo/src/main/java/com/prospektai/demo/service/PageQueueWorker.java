@@ -0,0 +1,117 @@
+package com.prospektai.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Holt auf dieser Instanz Seiten aus der {@link PageWorkQueue} und verarbeitet sie. Jede
+ * Instanz meldet sich mit einer eigenen {@code prospekt.queue.node-id} und hält ihre Leases per
+ * Heartbeat am Leben; bleibt der Heartbeat aus, übernehmen andere Instanzen die Seiten.
+ */
+@Component
+public class PageQueueWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(PageQueueWorker.class);
+
+    private final PageWorkQueue queue;
+    private final PdfProcessingService pdfProcessingService;
+    private final String owner;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    @Value("${prospekt.queue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${prospekt.queue.workers:8}")
+    private int workers;
+
+    @Value("${prospekt.queue.poll-interval:PT1S}")
+    private Duration pollInterval;
+
+    public PageQueueWorker(PageWorkQueue queue,
+                           PdfProcessingService pdfProcessingService,
+                           @Value("${prospekt.queue.node-id:}") String nodeId) {
+        this.queue = queue;
+        this.pdfProcessingService = pdfProcessingService;
+        String base = !nodeId.isBlank() ? nodeId
+                : Optional.ofNullable(System.getenv("HOSTNAME")).orElse("node");
+        // Zufälliger Suffix, damit ein Neustart nicht die Leases der abgestürzten Vorgängerinstanz erbt
+        this.owner = base + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Seiten-Warteschlange ist deaktiviert, diese Instanz verarbeitet keine Seiten");
+            return;
+        }
+        running = true;
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            threads.add(Thread.ofVirtual().name("page-worker-" + i).start(this::loop));
+        }
+        log.info("{} Seiten-Worker gestartet als {}", threads.size(), owner);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                Optional<PageWorkQueue.PageClaim> claim = queue.claim(owner);
+                if (claim.isEmpty()) {
+                    Thread.sleep(pollInterval);
+                    continue;
+                }
+                pdfProcessingService.processClaim(claim.get(), owner);
+                if (queue.finishJobIfDone(claim.get().jobId())) {
+                    log.info("Job {} abgeschlossen", claim.get().jobId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Fehler im Seiten-Worker: {}", e.getMessage(), e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollInterval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Verlängert die eigenen Leases und schließt Seiten ab, deren Lease abgelaufen ist und die
+     * keine Versuche mehr haben. Sollte deutlich kürzer als {@code prospekt.queue.lease} sein.
+     */
+    @Scheduled(fixedDelayString = "${prospekt.queue.heartbeat:PT30S}", initialDelayString = "${prospekt.queue.heartbeat:PT30S}")
+    public void heartbeat() {
+        if (!running) {
+            return;
+        }
+        queue.renewLeases(owner);
+        for (String jobId : queue.failExhausted()) {
+            queue.finishJobIfDone(jobId);
+        }
+    }
+}
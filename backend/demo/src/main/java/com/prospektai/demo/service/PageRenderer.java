@@ -0,0 +1,174 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties;
+import com.prospektai.demo.config.RenderProperties.EncodingProfile;
+import lombok.RequiredArgsConstructor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rendert eine Seite mit dem passenden {@link EncodingProfile}. Im Modus {@code auto} wird die
+ * Seite zuerst als kleine Graustufen-Vorschau gerendert; ihre Kantendichte dient als Maß für
+ * die Komplexität (viel Kleingedrucktes → hohe Dichte → höhere Auflösung nötig). Hat die Seite
+ * eine brauchbare Textebene ({@link TextLayerAnalyzer}), wird höchstens ein kleines
+ * Vorschaubild gerendert.
+ */
+@Component
+@RequiredArgsConstructor
+public class PageRenderer {
+
+    private static final int EDGE_THRESHOLD = 48;
+
+    private final RenderProperties properties;
+    private final TextLayerAnalyzer textLayerAnalyzer;
+
+    /**
+     * @param text Textebene der Seite aus {@link TextLayerAnalyzer#analyze}, oder {@code null},
+     *             wenn sie nicht gelesen wurde
+     */
+    public RenderedPage render(PDDocument document, PDFRenderer renderer, int pageIndex,
+                               TextLayerAnalyzer.PageText text) throws IOException {
+        if (textLayerAnalyzer.isUsable(text)) {
+            return renderTextPage(document, renderer, pageIndex, text.text());
+        }
+
+        double complexity = -1;
+        EncodingProfile profile;
+        if (isAuto()) {
+            BufferedImage thumbnail = renderer.renderImageWithDPI(pageIndex, properties.thumbnailDpi(), ImageType.GRAY);
+            complexity = edgeDensity(thumbnail);
+            profile = selectProfile(complexity);
+        } else {
+            profile = fixedProfile();
+        }
+
+        float dpi = effectiveDpi(document, pageIndex, profile);
+        ImageType imageType = profile.grayscale() ? ImageType.GRAY : ImageType.RGB;
+        BufferedImage image = renderer.renderImageWithDPI(pageIndex, dpi, imageType);
+        return new RenderedPage(image, profile, complexity, dpi, null);
+    }
+
+    private RenderedPage renderTextPage(PDDocument document, PDFRenderer renderer, int pageIndex, String text) throws IOException {
+        if (!properties.textLayer().thumbnail()) {
+            return new RenderedPage(null, null, -1, 0, text);
+        }
+        EncodingProfile profile = properties.textLayer().thumbnailProfile();
+        float dpi = effectiveDpi(document, pageIndex, profile);
+        BufferedImage image = renderer.renderImageWithDPI(pageIndex, dpi, ImageType.RGB);
+        return new RenderedPage(image, profile, -1, dpi, text);
+    }
+
+    /**
+     * Obergrenze für den Heap-Bedarf des Seitenbildes, das {@link #render} für diese Seite erzeugt:
+     * bei nutzbarer Textebene nur die Vorschau im Profil {@code text-layer.thumbnail-profile} (oder
+     * nichts), sonst die Seite im gewählten bzw. bei {@code auto} im größten Profil plus die Vorschau
+     * für die Komplexitätsschätzung.
+     */
+    public long estimateImageBytes(PDDocument document, int pageIndex, TextLayerAnalyzer.PageText text) {
+        if (textLayerAnalyzer.isUsable(text)) {
+            return properties.textLayer().thumbnail()
+                    ? imageBytes(document, pageIndex, properties.textLayer().thumbnailProfile(), ImageType.RGB)
+                    : 0;
+        }
+        if (!isAuto()) {
+            EncodingProfile profile = fixedProfile();
+            return imageBytes(document, pageIndex, profile, profile.grayscale() ? ImageType.GRAY : ImageType.RGB);
+        }
+        EncodingProfile largest = properties.profiles().stream()
+                .max(Comparator.comparingDouble(p -> (double) p.dpi() * p.maxLongEdge()))
+                .orElseThrow();
+        PDRectangle box = document.getPage(pageIndex).getCropBox();
+        long thumbnail = (long) Math.ceil(box.getWidth() * properties.thumbnailDpi() / 72f)
+                * (long) Math.ceil(box.getHeight() * properties.thumbnailDpi() / 72f);
+        return imageBytes(document, pageIndex, largest, ImageType.RGB) + thumbnail;
+    }
+
+    private long imageBytes(PDDocument document, int pageIndex, EncodingProfile profile, ImageType imageType) {
+        PDRectangle box = document.getPage(pageIndex).getCropBox();
+        float dpi = effectiveDpi(document, pageIndex, profile);
+        long width = (long) Math.ceil(box.getWidth() * dpi / 72f);
+        long height = (long) Math.ceil(box.getHeight() * dpi / 72f);
+        // TYPE_BYTE_GRAY: 1 Byte je Pixel, TYPE_INT_RGB: 4 Byte
+        return width * height * (imageType == ImageType.GRAY ? 1 : 4);
+    }
+
+    /**
+     * Ob die Textebene vor dem Rendern gelesen werden muss.
+     */
+    public boolean needsText() {
+        return properties.textLayer().enabled();
+    }
+
+    private boolean isAuto() {
+        return "auto".equalsIgnoreCase(properties.profile()) && properties.profiles().size() > 1;
+    }
+
+    private EncodingProfile fixedProfile() {
+        List<EncodingProfile> profiles = properties.profiles();
+        return profiles.stream()
+                .filter(p -> p.name().equalsIgnoreCase(properties.profile()))
+                .findFirst()
+                .orElse(profiles.get(profiles.size() - 1));
+    }
+
+    private EncodingProfile selectProfile(double complexity) {
+        EncodingProfile selected = properties.profiles().get(0);
+        for (EncodingProfile profile : properties.profiles()) {
+            if (complexity >= profile.minComplexity()) {
+                selected = profile;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Senkt die DPI so weit ab, dass die längere Bildkante {@code maxLongEdge} nicht übersteigt.
+     * Das ist billiger, als in voller Auflösung zu rendern und anschließend zu skalieren.
+     */
+    private float effectiveDpi(PDDocument document, int pageIndex, EncodingProfile profile) {
+        PDRectangle box = document.getPage(pageIndex).getCropBox();
+        float longEdgePoints = Math.max(box.getWidth(), box.getHeight());
+        if (longEdgePoints <= 0) {
+            return profile.dpi();
+        }
+        float maxDpi = profile.maxLongEdge() * 72f / longEdgePoints;
+        return Math.min(profile.dpi(), maxDpi);
+    }
+
+    /**
+     * Anteil benachbarter Pixelpaare mit deutlichem Helligkeitssprung.
+     */
+    static double edgeDensity(BufferedImage gray) {
+        Raster raster = gray.getRaster();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        if (width < 2 || height < 2) {
+            return 0;
+        }
+
+        int[] row = new int[width];
+        int[] next = new int[width];
+        raster.getSamples(0, 0, width, 1, 0, row);
+        long edges = 0;
+        for (int y = 0; y < height - 1; y++) {
+            raster.getSamples(0, y + 1, width, 1, 0, next);
+            for (int x = 0; x < width - 1; x++) {
+                if (Math.abs(row[x] - row[x + 1]) > EDGE_THRESHOLD) edges++;
+                if (Math.abs(row[x] - next[x]) > EDGE_THRESHOLD) edges++;
+            }
+            int[] tmp = row;
+            row = next;
+            next = tmp;
+        }
+        return edges / (2.0 * (width - 1) * (height - 1));
+    }
+}
@@ -0,0 +1,227 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Warteschlange der zu verarbeitenden Seiten in {@code upload_page}, geteilt von allen
+ * Backend-Instanzen. Worker holen sich Seiten mit {@code FOR UPDATE SKIP LOCKED} und halten
+ * sie über einen Lease ({@code lease_owner}, {@code lease_until}). Läuft ein Lease ab, weil
+ * eine Instanz abgestürzt ist, wird die Seite erneut ausgeliefert. Abschluss und Fehler
+ * werden nur vom aktuellen Lease-Inhaber angenommen; ein verspäteter Worker kann also keine
+ * doppelten Angebote schreiben. Alle Zeitvergleiche nutzen die Uhr der Datenbank.
+ */
+@Component
+public class PageWorkQueue {
+
+    private static final String CLAIMABLE = """
+            (p.status = 'PENDING' or (p.status = 'IN_PROGRESS' and p.lease_until < now())) and p.attempts < ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OfferSaver offerSaver;
+    private final long leaseMillis;
+    private final int maxAttempts;
+
+    public PageWorkQueue(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         OfferSaver offerSaver,
+                         @Value("${prospekt.queue.lease:PT2M}") Duration lease,
+                         @Value("${prospekt.queue.max-attempts:3}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.offerSaver = offerSaver;
+        this.leaseMillis = lease.toMillis();
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Holt die älteste freie Seite und bis zu {@code pages_per_chunk - 1} weitere freie Seiten
+     * derselben Datei, damit sie zusammen gerendert und in gemeinsamen LLM-Requests
+     * verarbeitet werden können. Teilergebnisse früherer Leases dieser Seiten werden freigegeben
+     * ({@link OfferSaver#releasePages}).
+     */
+    public Optional<PageClaim> claim(String owner) {
+        return transactionTemplate.execute(status -> {
+            List<Object[]> first = jdbcTemplate.query("""
+                    select p.job_id, p.file_id, j.pages_per_chunk, j.trace_parent
+                    from upload_page p join upload_job j on j.id = p.job_id
+                    where %s
+                    order by p.id
+                    limit 1
+                    for update of p skip locked""".formatted(CLAIMABLE),
+                    (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getInt(3), rs.getString(4)}, maxAttempts);
+            if (first.isEmpty()) {
+                return Optional.<PageClaim>empty();
+            }
+            String jobId = (String) first.get(0)[0];
+            String fileId = (String) first.get(0)[1];
+            int chunkSize = Math.max(1, (Integer) first.get(0)[2]);
+            String traceParent = (String) first.get(0)[3];
+
+            List<Integer> pages = jdbcTemplate.queryForList("""
+                    update upload_page set status = 'IN_PROGRESS', lease_owner = ?,
+                           lease_until = now() + ? * interval '1 millisecond', attempts = attempts + 1, updated_at = now()
+                    where id in (
+                        select p.id from upload_page p
+                        where p.file_id = ? and %s
+                        order by p.page_index
+                        limit ?
+                        for update skip locked)
+                    returning page_index""".formatted(CLAIMABLE),
+                    Integer.class, owner, leaseMillis, fileId, maxAttempts, chunkSize);
+            if (pages.isEmpty()) {
+                return Optional.<PageClaim>empty();
+            }
+            List<Integer> sorted = pages.stream().sorted().toList();
+
+            offerSaver.releasePages(fileId, sorted);
+            jdbcTemplate.update("""
+                    update upload_job set status = 'RUNNING', started_at = coalesce(started_at, now())
+                    where id = ? and status = 'QUEUED'""", jobId);
+            return Optional.of(new PageClaim(jobId, fileId, sorted, traceParent));
+        });
+    }
+
+    /**
+     * Speichert die restlichen Angebote einer Seite und markiert sie als erledigt, in einer
+     * Transaktion. Hat {@code owner} den Lease verloren, wird nichts geschrieben.
+     *
+     * @throws LeaseLostException wenn die Seite inzwischen einem anderen Worker gehört
+     */
+    public void complete(String fileId, int pageIndex, String owner, List<OfferEntity> offers, int total) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = jdbcTemplate.update("""
+                    update upload_page set status = 'DONE', offer_count = ?, error = null, lease_owner = null,
+                           lease_until = null, updated_at = now()
+                    where file_id = ? and page_index = ? and lease_owner = ? and status = 'IN_PROGRESS'""",
+                    total, fileId, pageIndex, owner);
+            if (updated == 0) {
+                throw new LeaseLostException(fileId, pageIndex);
+            }
+            if (!offers.isEmpty()) {
+                offerSaver.saveAll(offers);
+            }
+        });
+    }
+
+    /**
+     * Schließt eine Seite ohne LLM-Aufruf ab, weil der {@link PageClassifier} keine Angebote erwartet.
+     *
+     * @throws LeaseLostException wenn die Seite inzwischen einem anderen Worker gehört
+     */
+    public void skip(String fileId, int pageIndex, String owner) {
+        int updated = jdbcTemplate.update("""
+                update upload_page set status = 'SKIPPED', offer_count = 0, error = null, lease_owner = null,
+                       lease_until = null, updated_at = now()
+                where file_id = ? and page_index = ? and lease_owner = ? and status = 'IN_PROGRESS'""",
+                fileId, pageIndex, owner);
+        if (updated == 0) {
+            throw new LeaseLostException(fileId, pageIndex);
+        }
+    }
+
+    /**
+     * Speichert Angebote einer noch offenen Seite (Streaming), sofern {@code owner} den Lease noch hält.
+     */
+    public void savePartial(String fileId, int pageIndex, String owner, List<OfferEntity> offers) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Integer> held = jdbcTemplate.queryForList("""
+                    select 1 from upload_page where file_id = ? and page_index = ? and lease_owner = ? and status = 'IN_PROGRESS'
+                    for update""", Integer.class, fileId, pageIndex, owner);
+            if (held.isEmpty()) {
+                throw new LeaseLostException(fileId, pageIndex);
+            }
+            offerSaver.saveAll(offers);
+        });
+    }
+
+    /**
+     * Gibt eine fehlgeschlagene Seite zurück in die Warteschlange oder markiert sie als endgültig
+     * fehlgeschlagen, wenn {@code prospekt.queue.max-attempts} erreicht ist. Teilergebnisse werden freigegeben.
+     *
+     * @return {@code false}, wenn die Seite schon abgeschlossen ist oder nicht mehr {@code owner} gehört
+     */
+    public boolean fail(String fileId, int pageIndex, String owner, String error) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update("""
+                    update upload_page set status = case when attempts >= ? then 'FAILED' else 'PENDING' end,
+                           error = ?, lease_owner = null, lease_until = null, updated_at = now()
+                    where file_id = ? and page_index = ? and lease_owner = ? and status = 'IN_PROGRESS'""",
+                    maxAttempts, error, fileId, pageIndex, owner);
+            if (updated > 0) {
+                offerSaver.releasePages(fileId, List.of(pageIndex));
+            }
+            return updated > 0;
+        }));
+    }
+
+    /**
+     * Verlängert alle Leases von {@code owner}, damit lange LLM-Aufrufe nicht zur erneuten
+     * Auslieferung führen.
+     */
+    public int renewLeases(String owner) {
+        return jdbcTemplate.update("""
+                update upload_page set lease_until = now() + ? * interval '1 millisecond'
+                where lease_owner = ? and status = 'IN_PROGRESS'""", leaseMillis, owner);
+    }
+
+    /**
+     * Markiert Seiten als fehlgeschlagen, deren Lease abgelaufen ist und die keine Versuche mehr haben.
+     *
+     * @return betroffene Jobs
+     */
+    public List<String> failExhausted() {
+        return jdbcTemplate.queryForList("""
+                update upload_page set status = 'FAILED', error = coalesce(error, 'Lease abgelaufen'),
+                       lease_owner = null, lease_until = null, updated_at = now()
+                where status = 'IN_PROGRESS' and lease_until < now() and attempts >= ?
+                returning job_id""", String.class, maxAttempts).stream().distinct().toList();
+    }
+
+    /**
+     * Schließt den Job ab, sobald keine Seite mehr offen ist. Jeder Worker ruft das nach seinen
+     * Seiten auf; wer zuletzt fertig wird, sieht alle anderen Seiten bereits abgeschlossen.
+     *
+     * @return {@code true}, wenn der Job durch diesen Aufruf abgeschlossen wurde
+     */
+    public boolean finishJobIfDone(String jobId) {
+        int updated = jdbcTemplate.update("""
+                update upload_job j set
+                    status = case when exists (select 1 from upload_page p where p.job_id = j.id and p.status = 'FAILED')
+                                  then 'FAILED' else 'COMPLETED' end,
+                    finished_at = now()
+                where j.id = ? and j.status in ('QUEUED', 'RUNNING')
+                  and not exists (select 1 from upload_page p where p.job_id = j.id and p.status in ('PENDING', 'IN_PROGRESS'))""",
+                jobId);
+        if (updated > 0) {
+            // Alle Seiten erledigt; das PDF wird nur für das Fortsetzen fehlgeschlagener Seiten aufbewahrt
+            jdbcTemplate.update("""
+                    update upload_file set content = null
+                    where job_id = ? and exists (select 1 from upload_job where id = ? and status = 'COMPLETED')""", jobId, jobId);
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Von einem Worker übernommene Seiten einer Datei, aufsteigend sortiert.
+     *
+     * @param traceParent Trace des Jobs aus {@link JobTracing}, oder {@code null}
+     */
+    public record PageClaim(String jobId, String fileId, List<Integer> pageIndices, String traceParent) {
+    }
+
+    public static class LeaseLostException extends IllegalStateException {
+        public LeaseLostException(String fileId, int pageIndex) {
+            super("Lease für Seite " + (pageIndex + 1) + " von Datei " + fileId + " verloren");
+        }
+    }
+}
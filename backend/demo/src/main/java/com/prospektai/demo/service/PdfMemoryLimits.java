@@ -0,0 +1,89 @@
+package com.prospektai.demo.service;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Speichergrenzen für PDFs auf dieser Instanz. PDFBox hält je Dokument höchstens
+ * {@code prospekt.memory.pdf-main-memory} im Heap und lagert den Rest in eine Scratch-Datei aus.
+ * Gerenderte Seitenbilder reservieren ihren geschätzten Speicher aus
+ * {@code prospekt.memory.render-budget}; ist das Budget ausgeschöpft, warten die Render-Worker.
+ * Große oder viele gleichzeitige Prospekte werden dadurch langsamer statt den Heap zu sprengen.
+ */
+@Component
+public class PdfMemoryLimits {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfMemoryLimits.class);
+
+    private final long pdfMainMemoryBytes;
+    private final Path scratchDir;
+    private final Semaphore renderBudget;
+    private final int renderBudgetKb;
+
+    public PdfMemoryLimits(@Value("${prospekt.memory.pdf-main-memory:32MB}") DataSize pdfMainMemory,
+                           @Value("${prospekt.memory.scratch-dir:}") String scratchDir,
+                           @Value("${prospekt.memory.render-budget:512MB}") DataSize renderBudget) throws IOException {
+        this.pdfMainMemoryBytes = pdfMainMemory.toBytes();
+        this.scratchDir = Files.createDirectories(Path.of(scratchDir.isBlank() ? System.getProperty("java.io.tmpdir") : scratchDir));
+        this.renderBudgetKb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, renderBudget.toKilobytes()));
+        this.renderBudget = new Semaphore(renderBudgetKb, true);
+    }
+
+    /**
+     * Neue Einstellung je Dokument; jedes Dokument bekommt seine eigene Scratch-Datei.
+     */
+    public MemoryUsageSetting memoryUsage() {
+        return MemoryUsageSetting.setupMixed(pdfMainMemoryBytes).setTempDir(scratchDir.toFile());
+    }
+
+    public Path createTempFile(String prefix) throws IOException {
+        return Files.createTempFile(scratchDir, prefix, ".pdf");
+    }
+
+    /**
+     * Reserviert Speicher für ein Seitenbild und wartet, bis genug frei ist. Eine einzelne Seite,
+     * die größer als das ganze Budget ist, bekommt das ganze Budget; {@code 0} (kein Bild) reserviert nichts.
+     */
+    public Reservation reserve(long bytes) {
+        int kb = bytes <= 0 ? 0 : (int) Math.max(1, Math.min(renderBudgetKb, (bytes + 1023) / 1024));
+        if (!renderBudget.tryAcquire(kb)) {
+            log.debug("Render-Budget ausgeschöpft, warte auf {} KB", kb);
+            try {
+                renderBudget.acquire(kb);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Warten auf Render-Budget unterbrochen", e);
+            }
+        }
+        return new Reservation(kb);
+    }
+
+    /**
+     * Gibt den reservierten Speicher genau einmal zurück.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final int kb;
+        private boolean released;
+
+        private Reservation(int kb) {
+            this.kb = kb;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                renderBudget.release(kb);
+            }
+        }
+    }
+}
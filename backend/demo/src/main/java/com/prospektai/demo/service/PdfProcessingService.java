@@ -1,22 +1,23 @@
 package com.prospektai.demo.service;
 import com.prospektai.demo.Entity.OfferEntity;
+import io.micrometer.observation.Observation;
 import lombok.RequiredArgsConstructor;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Service
 @RequiredArgsConstructor
@@ -24,81 +25,401 @@ public class PdfProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfProcessingService.class);
 
-    private final PdfSplitter pdfSplitter;
     private final OpenAiClient openAiClient;
-    private final OfferSaver offerSaver;
+    private final PageRenderer pageRenderer;
+    private final TextLayerAnalyzer textLayerAnalyzer;
+    private final PageClassifier pageClassifier;
+    private final PdfMemoryLimits memoryLimits;
+    private final ImageEncoder imageEncoder;
+    private final EncodingProfileStats encodingProfileStats;
+    private final ExtractionCache extractionCache;
+    private final PagePipeline pipeline;
+    private final PageWorkQueue queue;
+    private final OpenPdfFiles openPdfFiles;
+    private final JobCheckpointStore checkpointStore;
+    private final UploadJobStats uploadJobStats;
+    private final PipelineMetrics metrics;
+    private final JobTracing jobTracing;
 
-    @Transactional
-    public void processPdf(List<MultipartFile> multipartFiles, int pagesPerChunk) throws Exception {
-        for (MultipartFile multipartFile : multipartFiles) {
-            logger.info("Verarbeite PDF-Datei: {}", multipartFile.getOriginalFilename());
-            processSinglePdf(multipartFile, pagesPerChunk);
+    @Value("${prospekt.llm.batch.max-pages:3}")
+    private int batchMaxPages;
+
+    @Value("${prospekt.llm.batch.max-image-bytes:4000000}")
+    private long batchMaxImageBytes;
+
+    @Value("${prospekt.llm.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    @Value("${prospekt.llm.streaming.flush-size:10}")
+    private int streamingFlushSize;
+
+    /**
+     * Schickt die von der {@link PageWorkQueue} übernommenen Seiten durch die Pipeline
+     * render → encode → llm → persist und wartet, bis jede Seite abgeschlossen oder
+     * zurückgegeben ist. Die Seiten werden als ein Chunk gerendert; innerhalb davon werden bis
+     * zu {@code prospekt.llm.batch.max-pages} Seiten in einem LLM-Request zusammengefasst.
+     * Die Verarbeitung läuft als Span im Trace des Jobs ({@link JobTracing}).
+     */
+    public void processClaim(PageWorkQueue.PageClaim claim, String owner) {
+        Observation observation = jobTracing.startClaim(claim, owner);
+        try (Observation.Scope ignored = observation.openScope()) {
+            processClaim(claim, owner, uploadJobStats.forJob(claim.jobId()));
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
         }
     }
 
-    private void processSinglePdf(MultipartFile multipartFile, int pagesPerChunk) throws Exception {
-        Path tempFile = Files.createTempFile("upload-", "-" + multipartFile.getOriginalFilename());
-        multipartFile.transferTo(tempFile.toFile());
-
-        String originalFilename = multipartFile.getOriginalFilename();
-        if (originalFilename == null || originalFilename.isBlank()) {
-            originalFilename = tempFile.getFileName().toString();
+    private void processClaim(PageWorkQueue.PageClaim claim, String owner, UploadJob job) {
+        OpenPdfFiles.OpenFile file;
+        long start = System.nanoTime();
+        try {
+            file = openPdfFiles.acquire(claim.fileId());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Datei {} konnte nicht geöffnet werden: {}", claim.fileId(), e.getMessage(), e);
+            for (int pageIndex : claim.pageIndices()) {
+                failPage(claim.fileId(), claim.fileId(), null, pageIndex, owner, e.getMessage());
+            }
+            return;
         }
 
+        FileRun run;
         try {
-            List<Path> chunkPaths = pdfSplitter.split(tempFile, pagesPerChunk);
-            for (Path chunkPath : chunkPaths) {
-                List<Path> jpegPaths = convertPdfToJpeg(chunkPath);
-                for (Path jpegPath : jpegPaths) {
-                    try {
-                        List<OfferEntity> offers = openAiClient.extractOffers(jpegPath);
-
-                        for (OfferEntity offer : offers) {
-                            offer.setAssociatedPdfFile(originalFilename);
-                        }
+            // Eigener Kontext je Chunk aus den Seiten davor: Chunks derselben Datei laufen parallel
+            DocumentContext context = new DocumentContext();
+            checkpointStore.restoreContext(claim.fileId(), claim.pageIndices().get(0), context);
+            run = new FileRun(file.fileId(), file.filename(), owner, job, context, new ConcurrentLinkedQueue<>());
+        } catch (RuntimeException e) {
+            openPdfFiles.release(file);
+            throw e;
+        }
+        record(run, "load", System.nanoTime() - start);
+        try {
+            CompletableFuture<Void> chunk = pipeline.render().submit(() -> {
+                renderChunk(file.source(), claim.pageIndices(), run);
+                return null;
+            });
+            chunk.exceptionally(e -> null).join();
+            CompletableFuture.allOf(run.pages().toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
 
-                        offerSaver.saveAll(offers);
-                    } catch (Exception e) {
-                        logger.error("Fehler bei der Verarbeitung des Bildes {}: {}", jpegPath, e.getMessage(), e);
-                        throw e;
-                    } finally {
-                        try {
-                            Files.deleteIfExists(jpegPath);
-                        } catch (IOException ex) {
-                            logger.warn("Konnte temporäre Bilddatei nicht löschen: {}", jpegPath, ex);
+            if (chunk.isCompletedExceptionally()) {
+                // Seiten, die schon abgeschlossen sind, lässt fail() unverändert
+                String error = chunk.handle((ignored, e) -> e.getMessage()).join();
+                for (int pageIndex : claim.pageIndices()) {
+                    failPage(run, pageIndex, error);
+                }
+            }
+        } finally {
+            openPdfFiles.release(file);
+        }
+    }
+
+    private void renderChunk(PdfSource source, List<Integer> pageIndices, FileRun run) throws IOException {
+        PDDocument document = source.acquire();
+        List<PendingPage> batch = new ArrayList<>();
+        try {
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (int pageIndex : pageIndices) {
+                RenderedPage rendered;
+                PdfMemoryLimits.Reservation reservation = null;
+                try {
+                    long start = System.nanoTime();
+                    TextLayerAnalyzer.PageText text = null;
+                    if (pageRenderer.needsText() || pageClassifier.isEnabled()) {
+                        text = textLayerAnalyzer.analyze(document, pageIndex);
+                        record(run, "text", System.nanoTime() - start);
+                    }
+                    if (pageClassifier.isEnabled()) {
+                        start = System.nanoTime();
+                        PageClassifier.Verdict verdict = pageClassifier.classify(document, renderer, pageIndex, text);
+                        record(run, "classify", System.nanoTime() - start);
+                        if (verdict.skip()) {
+                            run.pages().add(skip(pageIndex, run));
+                            continue;
                         }
                     }
+                    start = System.nanoTime();
+                    reservation = memoryLimits.reserve(pageRenderer.estimateImageBytes(document, pageIndex, text));
+                    record(run, "memory", System.nanoTime() - start);
+                    start = System.nanoTime();
+                    rendered = pageRenderer.render(document, renderer, pageIndex, text);
+                    record(run, "render", System.nanoTime() - start);
+                } catch (IOException | RuntimeException e) {
+                    if (reservation != null) {
+                        reservation.close();
+                    }
+                    logger.error("Fehler beim Rendern von Seite {} in {}: {}", pageIndex + 1, run.filename(), e.getMessage(), e);
+                    failPage(run, pageIndex, e.getMessage());
+                    run.pages().add(CompletableFuture.failedFuture(e));
+                    continue;
                 }
-                try {
-                    Files.deleteIfExists(chunkPath);
-                } catch (IOException ex) {
-                    logger.warn("Konnte temporäre Chunk-Datei nicht löschen: {}", chunkPath, ex);
+
+                // Das Seitenbild wird nach dem Kodieren nicht mehr gebraucht
+                PdfMemoryLimits.Reservation imageMemory = reservation;
+                CompletableFuture<EncodedImage> encoded = encode(rendered, run);
+                encoded.whenComplete((image, e) -> imageMemory.close());
+                batch.add(new PendingPage(pageIndex, encoded));
+                if (batch.size() >= batchMaxPages) {
+                    submitBatch(batch, run);
+                    batch = new ArrayList<>();
                 }
             }
-        } catch (Exception e) {
-            logger.error("Fehler bei der Verarbeitung der PDF-Datei {}: {}", originalFilename, e.getMessage(), e);
-            throw e;
         } finally {
-            try {
-                Files.deleteIfExists(tempFile);
-            } catch (IOException ex) {
-                logger.warn("Konnte temporäre Upload-Datei nicht löschen: {}", tempFile, ex);
+            source.release(document);
+            if (!batch.isEmpty()) {
+                submitBatch(batch, run);
             }
         }
     }
 
-    private List<Path> convertPdfToJpeg(Path pdfPath) throws IOException {
-        List<Path> imagePaths = new ArrayList<>();
-        try (PDDocument document = PDDocument.load(pdfPath.toFile())) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            int pages = document.getNumberOfPages();
-            for (int page = 0; page < pages; page++) {
-                BufferedImage image = renderer.renderImageWithDPI(page, 300f, ImageType.RGB);
-                Path imagePath = Files.createTempFile("chunk-image-" + page + "-", ".jpg");
-                ImageIO.write(image, "JPEG", imagePath.toFile());
-                imagePaths.add(imagePath);
+    private CompletableFuture<EncodedImage> encode(RenderedPage rendered, FileRun run) {
+        if (rendered.image() == null) {
+            EncodedImage textOnly = EncodedImage.textOnly(rendered.text());
+            recordPayload(textOnly, run);
+            return CompletableFuture.completedFuture(textOnly);
+        }
+        return pipeline.encode().submit(() -> {
+            long start = System.nanoTime();
+            EncodedImage image = imageEncoder.encode(rendered.image(), rendered.profile()).withText(rendered.text());
+            record(run, "encode", System.nanoTime() - start);
+            recordPayload(image, run);
+            return image;
+        });
+    }
+
+    private void recordPayload(EncodedImage image, FileRun run) {
+        encodingProfileStats.recordPayload(image.profile(), image.payloadBytes());
+        metrics.payload(image.profile(), run.context().storeName(), image.payloadBytes());
+    }
+
+    /**
+     * Schrittdauer für den Jobstatus und für {@link PipelineMetrics}.
+     */
+    private void record(FileRun run, String stage, long nanos) {
+        run.job().recordStage(stage, nanos);
+        metrics.stage(stage, run.context().storeName(), nanos);
+    }
+
+    /**
+     * Reicht eine Gruppe kodierter Seiten an die LLM-Stufe und danach seitenweise an die
+     * Persistenz weiter. Die Übergabe an die jeweils nächste Stufe passiert im Worker der
+     * vorherigen Stufe und blockiert dort, wenn die nächste Stufe voll ist.
+     */
+    private void submitBatch(List<PendingPage> batch, FileRun run) {
+        CompletableFuture<Map<Integer, PageResult>> extracted = CompletableFuture
+                .allOf(batch.stream().map(PendingPage::encoded).toArray(CompletableFuture[]::new))
+                .handle((ignored, e) -> batch.stream().filter(p -> !p.encoded().isCompletedExceptionally()).toList())
+                .thenCompose(encodedPages -> pipeline.llm().submit(() -> extractBatch(encodedPages, run)));
+
+        for (PendingPage page : batch) {
+            run.pages().add(page.encoded()
+                    .thenCombine(extracted, (image, results) -> results.get(page.pageIndex()))
+                    .thenCompose(result -> complete(page.pageIndex(), result, run))
+                    .whenComplete((ignored, e) -> {
+                        if (e == null) {
+                            return;
+                        }
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof PageWorkQueue.LeaseLostException) {
+                            // Die Seite gehört inzwischen einem anderen Worker; dessen Ergebnis zählt
+                            logger.warn("{}", cause.getMessage());
+                            return;
+                        }
+                        logger.error("Fehler bei der Verarbeitung von Seite {} in {}: {}", page.pageIndex() + 1, run.filename(), cause.getMessage(), cause);
+                        failPage(run, page.pageIndex(), cause.getMessage());
+                    }));
+        }
+    }
+
+    private void failPage(FileRun run, int pageIndex, String error) {
+        failPage(run.fileId(), run.filename(), run.context().storeName(), pageIndex, run.owner(), error);
+    }
+
+    private void failPage(String fileId, String filename, String store, int pageIndex, String owner, String error) {
+        try {
+            if (queue.fail(fileId, pageIndex, owner, error)) {
+                metrics.page("failed", store);
             }
+        } catch (RuntimeException e) {
+            // Die Seite bleibt IN_PROGRESS und wird nach Ablauf des Leases erneut ausgeliefert
+            logger.error("Seitenstatus für Seite {} in {} konnte nicht gespeichert werden", pageIndex + 1, filename, e);
         }
-        return imagePaths;
+    }
+
+    /**
+     * Teil-Speicherung während des Streamings; die Seite bleibt offen, bis {@link #complete} läuft.
+     */
+    private CompletableFuture<Void> save(List<OfferEntity> offers, int pageIndex, FileRun run) {
+        if (offers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return pipeline.persist().submit(() -> {
+            assignSource(offers, pageIndex, run);
+            long start = System.nanoTime();
+            queue.savePartial(run.fileId(), pageIndex, run.owner(), offers);
+            record(run, "save", System.nanoTime() - start);
+            return null;
+        });
+    }
+
+    /**
+     * Speichert die restlichen Angebote einer Seite und markiert die Seite in derselben
+     * Transaktion als erledigt, sofern der Lease noch gilt.
+     */
+    private CompletableFuture<Void> complete(int pageIndex, PageResult result, FileRun run) {
+        // Die Teil-Speicherungen laufen selbst in der Persist-Stufe
+        CompletableFuture<Void> flushed = CompletableFuture.allOf(result.flushed().toArray(CompletableFuture[]::new));
+        return pipeline.persist().submitAfter(flushed, () -> {
+            assignSource(result.unsaved(), pageIndex, run);
+            long start = System.nanoTime();
+            queue.complete(run.fileId(), pageIndex, run.owner(), result.unsaved(), result.total());
+            record(run, "save", System.nanoTime() - start);
+            metrics.page("done", run.context().storeName());
+            metrics.offers(run.context().storeName(), result.total());
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> skip(int pageIndex, FileRun run) {
+        return pipeline.persist().submit(() -> {
+            queue.skip(run.fileId(), pageIndex, run.owner());
+            metrics.page("skipped", run.context().storeName());
+            return null;
+        });
+    }
+
+    private static void assignSource(List<OfferEntity> offers, int pageIndex, FileRun run) {
+        for (OfferEntity offer : offers) {
+            offer.setAssociatedPdfFile(run.filename());
+            offer.setUploadFileId(run.fileId());
+            offer.setPageIndex(pageIndex);
+        }
+    }
+
+    /**
+     * Beantwortet zuerst alle Seiten aus dem {@link ExtractionCache} und schickt die übrigen in
+     * Requests mit höchstens {@code batchMaxPages} Seiten und {@code batchMaxImageBytes} Bildbytes.
+     * Der Dokumentkontext wird in Seitenreihenfolge fortgeschrieben und auf die Angebote
+     * angewendet. Im Streaming-Modus gehen Angebote schon während der Antwort in Gruppen von
+     * {@code streamingFlushSize} an die Persistenz.
+     */
+    private Map<Integer, PageResult> extractBatch(List<PendingPage> pages, FileRun run) throws Exception {
+        Map<Integer, List<OfferEntity>> offersByPage = new HashMap<>();
+        Map<Integer, PageResult> results = new HashMap<>();
+        List<PendingPage> misses = new ArrayList<>();
+        Map<Integer, String> cacheKeys = new HashMap<>();
+
+        for (PendingPage page : pages) {
+            EncodedImage image = page.encoded().join();
+            String cacheKey = extractionCache.keyFor(image);
+            long start = System.nanoTime();
+            Optional<List<OfferEntity>> cached = extractionCache.get(cacheKey);
+            if (cached.isPresent()) {
+                record(run, "cache", System.nanoTime() - start);
+                run.job().cacheHit();
+                offersByPage.put(page.pageIndex(), cached.get());
+            } else {
+                cacheKeys.put(page.pageIndex(), cacheKey);
+                misses.add(page);
+            }
+        }
+
+        for (List<PendingPage> request : partitionByBudget(misses)) {
+            List<EncodedImage> images = request.stream().map(p -> p.encoded().join()).toList();
+            long start = System.nanoTime();
+            List<List<OfferEntity>> extracted;
+            if (streamingEnabled) {
+                extracted = streamBatch(request, images, run, results);
+            } else {
+                extracted = openAiClient.extractOffers(images, run.context().describe(), usage -> recordUsage(usage, run));
+            }
+            record(run, "llm", System.nanoTime() - start);
+
+            for (int i = 0; i < request.size(); i++) {
+                PendingPage page = request.get(i);
+                List<OfferEntity> offers = extracted.get(i);
+                encodingProfileStats.recordOffers(images.get(i).profile(), offers.size());
+                extractionCache.put(cacheKeys.get(page.pageIndex()), offers);
+                if (!streamingEnabled) {
+                    offersByPage.put(page.pageIndex(), offers);
+                }
+            }
+        }
+
+        for (PendingPage page : pages) {
+            List<OfferEntity> offers = offersByPage.get(page.pageIndex());
+            if (offers != null) {
+                run.context().update(offers);
+                run.context().fill(offers);
+                results.put(page.pageIndex(), new PageResult(offers, offers.size(), List.of()));
+            }
+        }
+        return results;
+    }
+
+    private List<List<OfferEntity>> streamBatch(List<PendingPage> request, List<EncodedImage> images, FileRun run,
+                                                Map<Integer, PageResult> results) throws Exception {
+        List<List<OfferEntity>> buffers = new ArrayList<>();
+        List<List<CompletableFuture<Void>>> flushed = new ArrayList<>();
+        for (int i = 0; i < request.size(); i++) {
+            buffers.add(new ArrayList<>());
+            flushed.add(new ArrayList<>());
+        }
+
+        List<List<OfferEntity>> extracted = openAiClient.streamOffers(images, run.context().describe(), (i, offer) -> {
+            run.context().update(List.of(offer));
+            run.context().fill(List.of(offer));
+            List<OfferEntity> buffer = buffers.get(i);
+            buffer.add(offer);
+            if (buffer.size() >= streamingFlushSize) {
+                flushed.get(i).add(save(new ArrayList<>(buffer), request.get(i).pageIndex(), run));
+                buffer.clear();
+            }
+        }, usage -> recordUsage(usage, run));
+
+        for (int i = 0; i < request.size(); i++) {
+            results.put(request.get(i).pageIndex(), new PageResult(buffers.get(i), extracted.get(i).size(), flushed.get(i)));
+        }
+        return extracted;
+    }
+
+    private void recordUsage(OpenAiClient.Usage usage, FileRun run) {
+        metrics.tokens(usage, run.context().storeName());
+    }
+
+    private List<List<PendingPage>> partitionByBudget(List<PendingPage> pages) {
+        List<List<PendingPage>> requests = new ArrayList<>();
+        List<PendingPage> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (PendingPage page : pages) {
+            int bytes = page.encoded().join().payloadBytes();
+            if (!current.isEmpty() && (current.size() >= batchMaxPages || currentBytes + bytes > batchMaxImageBytes)) {
+                requests.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(page);
+            currentBytes += bytes;
+        }
+        if (!current.isEmpty()) {
+            requests.add(current);
+        }
+        return requests;
+    }
+
+    private record FileRun(String fileId, String filename, String owner, UploadJob job, DocumentContext context,
+                           ConcurrentLinkedQueue<CompletableFuture<Void>> pages) {
+    }
+
+    /**
+     * Ergebnis einer Seite: noch zu speichernde Angebote, Gesamtzahl und bereits laufende
+     * Teil-Speicherungen aus dem Streaming.
+     */
+    private record PageResult(List<OfferEntity> unsaved, int total, List<CompletableFuture<Void>> flushed) {
+    }
+
+    private record PendingPage(int pageIndex, CompletableFuture<EncodedImage> encoded) {
     }
 }
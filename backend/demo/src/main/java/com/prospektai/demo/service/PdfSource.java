@@ -0,0 +1,104 @@
+package com.prospektai.demo.service;
+
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Ein PDF in einer temporären Datei, aus dem Seiten direkt gerendert werden. {@link PDDocument}
+ * ist nicht threadsicher, deshalb bekommt jeder gleichzeitig rendernde Worker eine eigene
+ * Instanz; freie Instanzen werden für die nächsten Chunks wiederverwendet statt neu geparst.
+ * Die Dokumente lesen die Datei bei Bedarf und halten Bilder nicht über die Seite hinaus im
+ * Speicher. Die Datei gehört der Quelle und wird mit {@link #close()} gelöscht.
+ */
+public class PdfSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfSource.class);
+
+    private final Path file;
+    private final Supplier<MemoryUsageSetting> memoryUsage;
+    private final int pageCount;
+    private final ConcurrentLinkedQueue<PDDocument> idle = new ConcurrentLinkedQueue<>();
+    private final List<PDDocument> all = new ArrayList<>();
+
+    public PdfSource(Path file, Supplier<MemoryUsageSetting> memoryUsage) throws IOException {
+        this.file = file;
+        this.memoryUsage = memoryUsage;
+        PDDocument first = load();
+        this.pageCount = first.getNumberOfPages();
+        idle.add(first);
+    }
+
+    /**
+     * Seitenzahl eines PDFs, ohne es für das Rendern offen zu halten.
+     */
+    public static int countPages(Path file, MemoryUsageSetting memoryUsage) throws IOException {
+        try (PDDocument document = PDDocument.load(file.toFile(), memoryUsage)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public PDDocument acquire() throws IOException {
+        PDDocument document = idle.poll();
+        return document != null ? document : load();
+    }
+
+    public void release(PDDocument document) {
+        idle.add(document);
+    }
+
+    private PDDocument load() throws IOException {
+        PDDocument document = PDDocument.load(file.toFile(), memoryUsage.get());
+        document.setResourceCache(new PageScopedResourceCache());
+        synchronized (all) {
+            all.add(document);
+        }
+        return document;
+    }
+
+    @Override
+    public void close() {
+        synchronized (all) {
+            for (PDDocument document : all) {
+                try {
+                    document.close();
+                } catch (IOException e) {
+                    log.warn("Konnte PDF-Dokument nicht schließen", e);
+                }
+            }
+            all.clear();
+        }
+        idle.clear();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Konnte temporäre Datei {} nicht löschen", file, e);
+        }
+    }
+
+    /**
+     * Behält Schriften und Farbräume über Seiten hinweg, aber keine Bilder: Prospektseiten
+     * bestehen großteils aus Fotos, die selten auf einer zweiten Seite wieder vorkommen.
+     */
+    private static final class PageScopedResourceCache extends DefaultResourceCache {
+        @Override
+        public void put(COSObject indirect, PDXObject xobject) {
+        }
+    }
+}
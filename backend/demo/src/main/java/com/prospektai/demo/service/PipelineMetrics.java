@@ -0,0 +1,125 @@
+package com.prospektai.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer-Metriken der Seitenverarbeitung, abrufbar unter {@code /actuator/prometheus} auf dem Management-Port.
+ * Alle Meter tragen das Modell; Meter, die einer Datei zugeordnet werden können, zusätzlich den
+ * Markt aus dem {@link DocumentContext} ({@code unknown}, solange er noch nicht erkannt ist). Der
+ * Markt stammt aus der LLM-Antwort; als Tag dienen nur die in {@code prospekt.metrics.stores}
+ * konfigurierten Märkte, alle anderen zählen als {@code other}, damit die Zahl der Zeitreihen
+ * begrenzt bleibt.
+ * <p>
+ * Die Schrittnamen sind dieselben wie in {@link UploadJobStatus#stages()}.
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final String UNKNOWN_STORE = "unknown";
+    private static final String OTHER_STORE = "other";
+
+    private final MeterRegistry registry;
+    private final String model;
+    /** Vereinheitlichter Name ({@link OfferKey#text}) auf Tag-Wert */
+    private final Map<String, String> knownStores = new HashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry, PagePipeline pipeline, LlmCallGuard llmCallGuard,
+                           @Value("${spring.ai.openai.model}") String model,
+                           @Value("${prospekt.metrics.stores:}") String[] stores) {
+        this.registry = registry;
+        this.model = model;
+        for (String store : stores) {
+            if (!store.isBlank()) {
+                knownStores.put(OfferKey.text(store), store.trim());
+            }
+        }
+
+        for (PipelineStage stage : pipeline.stages()) {
+            Gauge.builder("prospekt.pipeline.in.flight", stage, PipelineStage::inFlight)
+                    .description("Aufgaben, die in der Stufe laufen oder auf einen Worker warten")
+                    .tag("stage", stage.getName())
+                    .register(registry);
+        }
+        Gauge.builder("prospekt.llm.in.flight", llmCallGuard, guard -> guard.snapshot().inFlight())
+                .tag("model", model)
+                .register(registry);
+        llmCounter("prospekt.llm.calls", llmCallGuard, LlmCallGuard.LlmClientStatus::calls);
+        llmCounter("prospekt.llm.retries", llmCallGuard, LlmCallGuard.LlmClientStatus::retries);
+        llmCounter("prospekt.llm.throttled", llmCallGuard, LlmCallGuard.LlmClientStatus::throttled);
+        llmCounter("prospekt.llm.failures", llmCallGuard, LlmCallGuard.LlmClientStatus::failures);
+    }
+
+    private void llmCounter(String name, LlmCallGuard guard, ToDoubleFunction<LlmCallGuard.LlmClientStatus> value) {
+        FunctionCounter.builder(name, guard, g -> value.applyAsDouble(g.snapshot()))
+                .tag("model", model)
+                .register(registry);
+    }
+
+    public void stage(String stage, String store, long nanos) {
+        Timer.builder("prospekt.stage")
+                .description("Dauer eines Verarbeitungsschritts je Seite bzw. Request")
+                .tags("stage", stage, "model", model, "store", store(store))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Bild- und Textbytes einer Seite im LLM-Request.
+     */
+    public void payload(String profile, String store, int bytes) {
+        DistributionSummary.builder("prospekt.llm.payload")
+                .baseUnit("bytes")
+                .tags("profile", profile, "model", model, "store", store(store))
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void offers(String store, int offers) {
+        DistributionSummary.builder("prospekt.page.offers")
+                .description("Extrahierte Angebote je Seite")
+                .tags("model", model, "store", store(store))
+                .register(registry)
+                .record(offers);
+    }
+
+    /**
+     * @param outcome {@code done}, {@code skipped} oder {@code failed} (ein fehlgeschlagener
+     *                Versuch; die Seite kann danach erneut ausgeliefert werden)
+     */
+    public void page(String outcome, String store) {
+        Counter.builder("prospekt.pages")
+                .tags("outcome", outcome, "model", model, "store", store(store))
+                .register(registry)
+                .increment();
+    }
+
+    public void tokens(OpenAiClient.Usage usage, String store) {
+        Counter.builder("prospekt.llm.tokens")
+                .tags("type", "prompt", "model", model, "store", store(store))
+                .register(registry)
+                .increment(usage.promptTokens());
+        Counter.builder("prospekt.llm.tokens")
+                .tags("type", "completion", "model", model, "store", store(store))
+                .register(registry)
+                .increment(usage.completionTokens());
+    }
+
+    private String store(String store) {
+        if (store == null || store.isBlank()) {
+            return UNKNOWN_STORE;
+        }
+        return knownStores.getOrDefault(OfferKey.text(store), OTHER_STORE);
+    }
+}
@@ -0,0 +1,105 @@
+package com.prospektai.demo.service;
+
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Eine Stufe der Seiten-Pipeline mit fester Parallelität und begrenzter Warteschlange.
+ * {@link #submit(Callable)} blockiert den aufrufenden Thread, solange alle Plätze belegt sind;
+ * dadurch bremst eine volle Stufe automatisch die vorgelagerte Stufe (Backpressure).
+ * Die aktuelle Observation (Trace des Jobs) wird an den Worker weitergereicht.
+ */
+public class PipelineStage {
+
+    private static final ContextSnapshotFactory CONTEXT = ContextSnapshotFactory.builder().build();
+
+    /** Übergibt Folgeaufgaben außerhalb der Stufen-Worker, damit deren Plätze nicht blockiert bleiben. */
+    private static final Executor HANDOFF = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("pipeline-handoff-", 0).factory());
+
+    private final String name;
+    private final int capacity;
+    private final Semaphore slots;
+    private final ExecutorService executor;
+
+    public PipelineStage(String name, int parallelism, int queueCapacity, boolean virtualThreads) {
+        this.name = name;
+        this.capacity = parallelism + queueCapacity;
+        this.slots = new Semaphore(capacity);
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("pipeline-" + name + "-", 0).factory()
+                : Thread.ofPlatform().name("pipeline-" + name + "-", 0).daemon(true).factory();
+        this.executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Anzahl der Aufgaben, die gerade in dieser Stufe laufen oder auf einen Worker warten.
+     */
+    public int inFlight() {
+        return capacity - slots.availablePermits();
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        ContextSnapshot context = CONTEXT.captureAll();
+        try {
+            executor.execute(() -> {
+                try (ContextSnapshot.Scope ignored = context.setThreadLocals()) {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Reicht {@code task} an diese Stufe weiter, sobald {@code dependency} erfolgreich abgeschlossen
+     * ist. Die Übergabe läuft nicht im Thread, der {@code dependency} abschließt: Ist das ein
+     * Worker dieser Stufe, würde er sonst in {@link #submit} auf einen Platz warten, den er selbst
+     * noch belegt, und bei voller Stufe hängt die ganze Pipeline. Ist {@code dependency} schon
+     * fertig, blockiert wie bei {@link #submit} der aufrufende Thread (Backpressure).
+     */
+    public <T> CompletableFuture<T> submitAfter(CompletableFuture<?> dependency, Callable<T> task) {
+        if (dependency.isDone()) {
+            return dependency.thenCompose(ignored -> submit(task));
+        }
+        ContextSnapshot context = CONTEXT.captureAll();
+        return dependency.thenComposeAsync(ignored -> {
+            try (ContextSnapshot.Scope scope = context.setThreadLocals()) {
+                return submit(task);
+            }
+        }, HANDOFF);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
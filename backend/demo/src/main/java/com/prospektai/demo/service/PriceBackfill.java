@@ -0,0 +1,98 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Berechnet die normalisierten Preisspalten für Angebote, die vor dem {@link PriceNormalizer}
+ * oder mit einer älteren {@link PriceNormalizer#VERSION} gespeichert wurden. Läuft nach dem
+ * Start im Hintergrund, in Portionen nach ID, damit keine lange Transaktion entsteht.
+ */
+@Component
+@RequiredArgsConstructor
+public class PriceBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceBackfill.class);
+
+    private static final String SELECT_SQL = """
+            select id, price, original_price, app_price, quantity, product_description
+            from offer_data
+            where (normalizer_version is null or normalizer_version < ?) and id > ?
+            order by id
+            limit ?""";
+
+    private static final String UPDATE_SQL = """
+            update offer_data
+            set price_cents = ?, original_price_cents = ?, app_price_cents = ?, base_quantity = ?,
+                base_unit = ?, unit_price_cents = ?, normalizer_version = ?
+            where id = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceNormalizer priceNormalizer;
+
+    @Value("${prospekt.prices.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${prospekt.prices.backfill.batch-size:1000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            Thread.ofVirtual().name("price-backfill").start(this::run);
+        }
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        long lastId = 0;
+        long updated = 0;
+        try {
+            while (true) {
+                List<OfferEntity> offers = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> {
+                    OfferEntity offer = new OfferEntity();
+                    offer.setId(rs.getLong("id"));
+                    offer.setPrice(rs.getString("price"));
+                    offer.setOriginalPrice(rs.getString("original_price"));
+                    offer.setAppPrice(rs.getString("app_price"));
+                    offer.setQuantity(rs.getString("quantity"));
+                    offer.setProductDescription(rs.getString("product_description"));
+                    return offer;
+                }, PriceNormalizer.VERSION, lastId, batchSize);
+                if (offers.isEmpty()) {
+                    break;
+                }
+
+                offers.forEach(priceNormalizer::normalize);
+                jdbcTemplate.batchUpdate(UPDATE_SQL, offers, batchSize, (ps, offer) -> {
+                    ps.setObject(1, offer.getPriceCents(), Types.INTEGER);
+                    ps.setObject(2, offer.getOriginalPriceCents(), Types.INTEGER);
+                    ps.setObject(3, offer.getAppPriceCents(), Types.INTEGER);
+                    ps.setBigDecimal(4, offer.getBaseQuantity());
+                    ps.setString(5, offer.getBaseUnit());
+                    ps.setObject(6, offer.getUnitPriceCents(), Types.INTEGER);
+                    ps.setShort(7, offer.getNormalizerVersion());
+                    ps.setLong(8, offer.getId());
+                });
+                updated += offers.size();
+                lastId = offers.get(offers.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            log.error("Backfill der Preisspalten abgebrochen nach {} Angeboten", updated, e);
+            return;
+        }
+        if (updated > 0) {
+            log.info("Preisspalten für {} Angebote nachberechnet in {} ms", updated, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
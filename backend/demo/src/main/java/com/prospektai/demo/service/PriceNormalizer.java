@@ -0,0 +1,105 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Leitet aus den Freitextfeldern eines Angebots Zahlen ab: Preise in Cent, die Menge in
+ * Basiseinheit (kg, l oder Stück) und daraus den Grundpreis je Basiseinheit. Was sich nicht
+ * eindeutig lesen lässt, bleibt {@code null}; die Originaltexte werden nicht verändert.
+ */
+@Component
+public class PriceNormalizer {
+
+    /** Bei Änderungen an den Regeln erhöhen, damit der Backfill bestehende Zeilen neu berechnet. */
+    public static final short VERSION = 1;
+
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Integer.MAX_VALUE);
+    // Wertebereich von offer_data.base_quantity, numeric(12, 4)
+    private static final BigDecimal MIN_QUANTITY = new BigDecimal("0.0001");
+    private static final BigDecimal MAX_QUANTITY = new BigDecimal("99999999");
+
+    // "1,99", "1.99 €", ",99", "2.-", "1.9" (aus einer JSON-Zahl)
+    private static final Pattern DECIMAL_PRICE = Pattern.compile("(\\d{0,5})\\s*[.,]\\s*(\\d{1,2}|[-–]{1,2})(?!\\d)");
+    private static final Pattern INTEGER_PRICE = Pattern.compile("(?<![\\d.,])(\\d{1,5})(?![\\d.,])");
+    // "500 g", "1,5l", "6 x 1,5 l", "250-g-Packung", "10 Stück"
+    private static final Pattern QUANTITY = Pattern.compile(
+            "(?:(\\d{1,3})\\s*[x×]\\s*)?(\\d+(?:[.,]\\d+)?)\\s*-?\\s*(kg|g|ml|cl|l|ltr|liter|stück|stk|st)(?![a-zäöüß])");
+
+    public void normalize(OfferEntity offer) {
+        offer.setPriceCents(parseCents(offer.getPrice()));
+        offer.setOriginalPriceCents(parseCents(offer.getOriginalPrice()));
+        offer.setAppPriceCents(parseCents(offer.getAppPrice()));
+
+        Quantity quantity = parseQuantity(offer.getQuantity());
+        if (quantity == null) {
+            quantity = parseQuantity(offer.getProductDescription());
+        }
+        offer.setBaseQuantity(quantity != null ? quantity.amount() : null);
+        offer.setBaseUnit(quantity != null ? quantity.unit() : null);
+
+        Integer unitPrice = null;
+        if (quantity != null && offer.getPriceCents() != null) {
+            BigDecimal perUnit = new BigDecimal(offer.getPriceCents()).divide(quantity.amount(), 0, RoundingMode.HALF_UP);
+            // Winzige Mengen ("1 ml" für 99999 €) ergeben keinen sinnvollen Grundpreis
+            unitPrice = perUnit.compareTo(MAX_CENTS) <= 0 ? perUnit.intValue() : null;
+        }
+        offer.setUnitPriceCents(unitPrice);
+        offer.setNormalizerVersion(VERSION);
+    }
+
+    static Integer parseCents(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Matcher decimal = DECIMAL_PRICE.matcher(text);
+        while (decimal.find()) {
+            String euros = decimal.group(1);
+            String cents = decimal.group(2);
+            boolean dash = !Character.isDigit(cents.charAt(0));
+            if (euros.isEmpty() && dash) {
+                continue;
+            }
+            int value = euros.isEmpty() ? 0 : Integer.parseInt(euros) * 100;
+            if (!dash) {
+                value += cents.length() == 1 ? Integer.parseInt(cents) * 10 : Integer.parseInt(cents);
+            }
+            return value;
+        }
+        Matcher integer = INTEGER_PRICE.matcher(text);
+        return integer.find() ? Integer.parseInt(integer.group(1)) * 100 : null;
+    }
+
+    static Quantity parseQuantity(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Matcher matcher = QUANTITY.matcher(text.toLowerCase(Locale.GERMAN));
+        if (!matcher.find()) {
+            return null;
+        }
+        BigDecimal amount = new BigDecimal(matcher.group(2).replace(',', '.'));
+        if (matcher.group(1) != null) {
+            amount = amount.multiply(new BigDecimal(matcher.group(1)));
+        }
+        Quantity quantity = switch (matcher.group(3)) {
+            case "g" -> new Quantity(amount.movePointLeft(3), "kg");
+            case "kg" -> new Quantity(amount, "kg");
+            case "ml" -> new Quantity(amount.movePointLeft(3), "l");
+            case "cl" -> new Quantity(amount.movePointLeft(2), "l");
+            case "l", "ltr", "liter" -> new Quantity(amount, "l");
+            default -> new Quantity(amount, "stk");
+        };
+        BigDecimal base = quantity.amount();
+        return base.compareTo(MIN_QUANTITY) >= 0 && base.compareTo(MAX_QUANTITY) <= 0 ? quantity : null;
+    }
+
+    record Quantity(BigDecimal amount, String unit) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties.EncodingProfile;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * @param image gerendertes Seitenbild, oder {@code null}, wenn nur die Textebene verwendet wird
+ * @param text  Textebene der Seite, oder {@code null} bei gescannten Seiten
+ */
+public record RenderedPage(BufferedImage image, EncodingProfile profile, double complexity, float dpi, String text) {
+}
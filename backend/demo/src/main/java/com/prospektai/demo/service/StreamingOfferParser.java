@@ -0,0 +1,106 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parst die Antwort {@code {"offers": [ {...}, {...} ]}} inkrementell, während sie als
+ * Textfragmente aus dem Stream ankommt. Jedes Angebot wird zurückgegeben, sobald sein Objekt
+ * vollständig ist. Text vor der ersten öffnenden Klammer (z. B. ein Code-Fence) und alles nach
+ * dem Ende des Wurzelobjekts wird ignoriert.
+ */
+public class StreamingOfferParser {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean finished;
+    private int depth;
+    private boolean offersFieldPending;
+    private boolean inOffers;
+    private TokenBuffer current;
+    private int currentDepth;
+
+    public StreamingOfferParser(ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public List<JsonNode> feed(String fragment) throws IOException {
+        if (finished || fragment.isEmpty()) {
+            return List.of();
+        }
+        if (!started) {
+            int start = fragment.indexOf('{');
+            if (start < 0) {
+                return List.of();
+            }
+            fragment = fragment.substring(start);
+            started = true;
+        }
+
+        byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        feeder.feedInput(bytes, 0, bytes.length);
+        return drain();
+    }
+
+    /**
+     * @return {@code true}, wenn das Wurzelobjekt vollständig gelesen wurde
+     */
+    public boolean isComplete() {
+        return finished;
+    }
+
+    private List<JsonNode> drain() throws IOException {
+        List<JsonNode> completed = new ArrayList<>();
+        JsonToken token;
+        while (!finished && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+            if (current != null) {
+                current.copyCurrentEvent(parser);
+            }
+
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    if (token == JsonToken.START_ARRAY && offersFieldPending && depth == 2) {
+                        inOffers = true;
+                    } else if (token == JsonToken.START_OBJECT && inOffers && depth == 3 && current == null) {
+                        current = new TokenBuffer(parser);
+                        current.copyCurrentEvent(parser);
+                        currentDepth = depth;
+                    }
+                    offersFieldPending = false;
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    if (current != null && depth == currentDepth) {
+                        completed.add(objectMapper.readTree(current.asParser()));
+                        current = null;
+                    }
+                    if (token == JsonToken.END_ARRAY && inOffers && depth == 2) {
+                        inOffers = false;
+                    }
+                    depth--;
+                    if (depth == 0) {
+                        finished = true;
+                        feeder.endOfInput();
+                    }
+                }
+                case FIELD_NAME -> offersFieldPending = depth == 1 && "offers".equals(parser.currentName());
+                default -> offersFieldPending = false;
+            }
+        }
+        return completed;
+    }
+}
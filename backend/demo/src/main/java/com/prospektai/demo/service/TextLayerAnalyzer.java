@@ -0,0 +1,95 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties;
+import lombok.RequiredArgsConstructor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Liest die Textebene einer Seite und misst sie: sichtbare Zeichen, die von ihren Zeichenboxen
+ * abgedeckte Fläche sowie der Anteil an Buchstaben und Ziffern. Gescannte Seiten haben keine
+ * oder nur eine dünne Textebene und bleiben beim Bildpfad.
+ */
+@Component
+@RequiredArgsConstructor
+public class TextLayerAnalyzer {
+
+    private final RenderProperties properties;
+
+    public PageText analyze(PDDocument document, int pageIndex) throws IOException {
+        CoverageStripper stripper = new CoverageStripper();
+        stripper.setSortByPosition(true);
+        stripper.setStartPage(pageIndex + 1);
+        stripper.setEndPage(pageIndex + 1);
+        String text = stripper.getText(document).strip();
+
+        PDRectangle box = document.getPage(pageIndex).getCropBox();
+        double pageArea = (double) box.getWidth() * box.getHeight();
+        double coverage = pageArea > 0 ? Math.min(1, stripper.glyphArea / pageArea) : 0;
+        return new PageText(text, stripper.visibleChars, stripper.letters, stripper.digits, coverage);
+    }
+
+    /**
+     * @return {@code true}, wenn die Seite die Schwellwerte aus {@code prospekt.render.text-layer}
+     * erreicht und ihr Text statt eines vollen Seitenbildes an das LLM gehen kann
+     */
+    public boolean isUsable(PageText page) {
+        RenderProperties.TextLayer limits = properties.textLayer();
+        return limits.enabled()
+                && page != null
+                && page.visibleChars() >= limits.minChars()
+                && page.coverage() >= limits.minCoverage()
+                && page.letterRatio() >= limits.minLetterRatio();
+    }
+
+    /**
+     * @param letters  Buchstaben und Ziffern
+     * @param coverage Anteil der Seitenfläche, den die Zeichenboxen abdecken
+     */
+    public record PageText(String text, int visibleChars, int letters, int digits, double coverage) {
+
+        public double letterRatio() {
+            return visibleChars > 0 ? (double) letters / visibleChars : 0;
+        }
+
+        public double digitRatio() {
+            return visibleChars > 0 ? (double) digits / visibleChars : 0;
+        }
+    }
+
+    private static final class CoverageStripper extends PDFTextStripper {
+        private int visibleChars;
+        private int letters;
+        private int digits;
+        private double glyphArea;
+
+        CoverageStripper() throws IOException {
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> positions) throws IOException {
+            for (TextPosition position : positions) {
+                String unicode = position.getUnicode();
+                if (unicode == null || unicode.isBlank()) {
+                    continue;
+                }
+                visibleChars++;
+                int codePoint = unicode.codePointAt(0);
+                if (Character.isLetterOrDigit(codePoint)) {
+                    letters++;
+                }
+                if (Character.isDigit(codePoint)) {
+                    digits++;
+                }
+                glyphArea += Math.abs(position.getWidthDirAdj() * position.getHeightDir());
+            }
+            super.writeString(text, positions);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.prospektai.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ratenbegrenzung für ausgehende Requests: {@code burst} Tokens, die mit
+ * {@code requestsPerMinute} nachgefüllt werden. Nach einem 429 kann der Eimer für die vom
+ * Anbieter genannte Dauer angehalten werden. {@code requestsPerMinute <= 0} heißt unbegrenzt.
+ */
+public class TokenBucket {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean unlimited;
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    public TokenBucket(int requestsPerMinute, int burst) {
+        this.unlimited = requestsPerMinute <= 0;
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = unlimited ? 0 : requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                refill(now);
+                if (now - pausedUntil < 0) {
+                    waitNanos = pausedUntil - now;
+                } else if (unlimited) {
+                    return;
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                } else {
+                    waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                }
+            } finally {
+                lock.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * Gibt für {@code duration} keine Tokens aus und leert den Eimer, damit nach der Pause nicht
+     * sofort wieder ein voller Burst losgeht.
+     */
+    public void pause(Duration duration) {
+        lock.lock();
+        try {
+            long until = System.nanoTime() + duration.toNanos();
+            if (until - pausedUntil > 0) {
+                pausedUntil = until;
+            }
+            tokens = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double availableTokens() {
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            return unlimited ? capacity : tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        if (!unlimited) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        }
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,85 @@
+package com.prospektai.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+@RequiredArgsConstructor
+public class UploadJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final JobCheckpointStore checkpointStore;
+    private final UploadJobStats uploadJobStats;
+    private final PdfMemoryLimits memoryLimits;
+    private final JobTracing jobTracing;
+
+    @Value("${prospekt.jobs.max-queued:50}")
+    private int maxQueuedJobs;
+
+    @Value("${prospekt.jobs.checkpoint-retention:P7D}")
+    private Duration checkpointRetention;
+
+    /**
+     * Legt einen Job an und stellt seine Seiten in die {@link PageWorkQueue}; verarbeitet werden
+     * sie von den {@link PageQueueWorker}n aller Instanzen.
+     *
+     * @return die ID des Jobs
+     * @throws RejectedExecutionException wenn bereits zu viele Jobs warten oder laufen
+     * @throws IOException                wenn eine Datei kein lesbares PDF ist
+     */
+    public String submit(List<UploadedPdf> pdfs, int pagesPerChunk) throws IOException {
+        if (checkpointStore.countUnfinishedJobs() >= maxQueuedJobs) {
+            throw new RejectedExecutionException("Zu viele Jobs in Verarbeitung");
+        }
+
+        List<Integer> pageCounts = new ArrayList<>();
+        for (UploadedPdf pdf : pdfs) {
+            pageCounts.add(PdfSource.countPages(pdf.file(), memoryLimits.memoryUsage()));
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        int pages = pageCounts.stream().mapToInt(Integer::intValue).sum();
+        String traceParent = jobTracing.startJob(jobId, pdfs.size(), pages);
+        checkpointStore.createJob(jobId, pdfs, pageCounts, Math.max(1, pagesPerChunk), traceParent);
+        log.info("Job {} eingeplant für {} Dateien mit {} Seiten (Trace {})", jobId, pdfs.size(), pages,
+                JobTracing.traceId(traceParent));
+        return jobId;
+    }
+
+    /**
+     * Stellt die fehlgeschlagenen Seiten eines Jobs erneut in die Warteschlange. Bereits
+     * erledigte Seiten werden nicht noch einmal verarbeitet.
+     *
+     * @return {@code false}, wenn der Job keine fehlgeschlagenen Seiten hat oder seine Dateien
+     * nicht mehr vorliegen
+     */
+    public boolean resume(String jobId) {
+        return checkpointStore.prepareResume(jobId);
+    }
+
+    public Optional<UploadJobStatus> findStatus(String jobId) {
+        return checkpointStore.loadStatus(jobId, uploadJobStats.find(jobId).orElse(null));
+    }
+
+    @Scheduled(fixedDelayString = "${prospekt.jobs.cleanup-interval:PT1H}", initialDelayString = "PT10M")
+    public void deleteOldCheckpoints() {
+        int deleted = checkpointStore.deleteFinishedBefore(Instant.now().minus(checkpointRetention));
+        if (deleted > 0) {
+            log.info("{} abgeschlossene Jobs aus der Datenbank entfernt", deleted);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.prospektai.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Messwerte dieser Instanz je Upload-Job. Einträge ohne Aktivität werden nach
+ * {@code prospekt.jobs.retention} entfernt.
+ */
+@Component
+public class UploadJobStats {
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${prospekt.jobs.retention:PT1H}")
+    private Duration retention;
+
+    public UploadJob forJob(String jobId) {
+        return jobs.computeIfAbsent(jobId, UploadJob::new);
+    }
+
+    public Optional<UploadJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Scheduled(fixedDelayString = "PT5M", initialDelayString = "PT5M")
+    public void evictIdle() {
+        Instant threshold = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getLastActivity().isBefore(threshold));
+    }
+}
@@ -0,0 +1,30 @@
+package com.prospektai.demo.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record UploadJobStatus(
+        String jobId,
+        UploadJob.Status status,
+        List<String> files,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt,
+        Long elapsedMs,
+        Double pagesPerMinute,
+        int pagesTotal,
+        int pagesDone,
+        int pagesSkipped,
+        int pagesFailed,
+        int offersExtracted,
+        int cacheHits,
+        List<String> failures,
+        String error,
+        String traceId,
+        Map<String, StageStatus> stages
+) {
+
+    public record StageStatus(long count, long totalMs, long avgMs, long maxMs, long p50Ms, long p99Ms) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.prospektai.demo.service;
+
+import java.nio.file.Path;
+
+/**
+ * Eine hochgeladene PDF-Datei. Der Inhalt liegt in einer temporären Datei, damit auch große
+ * Prospekte nie vollständig im Heap gehalten werden müssen.
+ *
+ * @param id Schlüssel in {@code upload_file}, unter dem der Fortschritt je Seite gespeichert wird
+ */
+public record UploadedPdf(String id, Path file, String originalFilename) {
+}
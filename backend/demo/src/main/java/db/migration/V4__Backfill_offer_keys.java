@@ -0,0 +1,150 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Berechnet {@code offer_key} für die Angebote, die vor V3 gespeichert wurden, und führt Dubletten
+ * zusammen: Je Schlüssel und Angebotswoche bleibt die älteste Zeile, ihre {@code source_pdf_files}
+ * und {@code source_pages} enthalten die Dateien und Seiten aller Dubletten. Die Schlüssel entstehen in Java; das Zusammenführen
+ * erledigen danach wenige Statements in der Datenbank.
+ * <p>
+ * Schlüssel und Preislesung sind hier eingefroren, Stand {@code OfferKey} und
+ * {@code PriceNormalizer} Version 1. Spätere Änderungen dort dürfen diese Migration nicht
+ * verändern; sie brauchen eine eigene.
+ */
+public class V4__Backfill_offer_keys extends BaseJavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(V4__Backfill_offer_keys.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final Pattern NOT_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final char SEPARATOR = '\u001f';
+    private static final Pattern DECIMAL_PRICE = Pattern.compile("(\\d{0,5})\\s*[.,]\\s*(\\d{1,2}|[-–]{1,2})(?!\\d)");
+    private static final Pattern INTEGER_PRICE = Pattern.compile("(?<![\\d.,])(\\d{1,5})(?![\\d.,])");
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        jdbcTemplate.setFetchSize(BATCH_SIZE);
+        jdbcTemplate.execute("""
+                create temporary table offer_keys (id bigint, offer_week date, offer_key bytea, pdf_file text, page text)
+                on commit drop""");
+
+        MessageDigest sha256 = sha256();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        jdbcTemplate.query("""
+                select id, offer_week, store_name, product_name, brand, quantity, price,
+                       associated_pdf_file, offer_date_start, offer_date_end, calender_week,
+                       upload_file_id || ':' || page_index as page
+                from offer_data""", rs -> {
+            // price_cents kann von einer älteren Normalizer-Version stammen oder fehlen, daher aus dem Text
+            String price = rs.getString("price");
+            Integer priceCents = parseCents(price);
+            StringBuilder key = new StringBuilder(128);
+            key.append(text(rs.getString("store_name"))).append(SEPARATOR);
+            key.append(text(rs.getString("product_name"))).append(SEPARATOR);
+            key.append(text(rs.getString("brand"))).append(SEPARATOR);
+            key.append(text(rs.getString("quantity"))).append(SEPARATOR);
+            key.append(priceCents != null ? priceCents.toString() : text(price)).append(SEPARATOR);
+            key.append(date(rs.getObject("offer_date_start", LocalDate.class))).append(SEPARATOR);
+            key.append(date(rs.getObject("offer_date_end", LocalDate.class))).append(SEPARATOR);
+            Object calenderWeek = rs.getObject("calender_week");
+            key.append(calenderWeek != null ? calenderWeek.toString() : "").append(SEPARATOR);
+            byte[] offerKey = sha256.digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            batch.add(new Object[]{rs.getLong("id"), rs.getObject("offer_week", LocalDate.class), offerKey,
+                    rs.getString("associated_pdf_file"), rs.getString("page")});
+            if (batch.size() == BATCH_SIZE) {
+                insert(jdbcTemplate, batch);
+            }
+        });
+        insert(jdbcTemplate, batch);
+
+        jdbcTemplate.execute("create index on offer_keys (offer_key, offer_week)");
+        jdbcTemplate.execute("analyze offer_keys");
+        jdbcTemplate.execute("""
+                create temporary table offer_key_groups on commit drop as
+                select offer_key, offer_week, min(id) as keep_id,
+                       coalesce(array_agg(distinct pdf_file) filter (where pdf_file is not null), '{}') as files,
+                       coalesce(array_agg(distinct page) filter (where page is not null), '{}') as pages
+                from offer_keys
+                group by offer_key, offer_week""");
+
+        int duplicates = jdbcTemplate.update("""
+                delete from offer_data o
+                using offer_keys k, offer_key_groups g
+                where o.id = k.id and o.offer_week = k.offer_week
+                  and g.offer_key = k.offer_key and g.offer_week = k.offer_week and o.id <> g.keep_id""");
+        int keyed = jdbcTemplate.update("""
+                update offer_data o
+                set offer_key = g.offer_key, source_pdf_files = g.files, source_pages = g.pages
+                from offer_key_groups g
+                where o.id = g.keep_id and o.offer_week = g.offer_week""");
+        log.info("offer_key für {} Angebote berechnet, {} Dubletten zusammengeführt", keyed, duplicates);
+    }
+
+    private static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return NOT_ALPHANUMERIC.matcher(normalized).replaceAll("");
+    }
+
+    private static String date(LocalDate date) {
+        return date != null ? date.toString() : "";
+    }
+
+    private static Integer parseCents(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Matcher decimal = DECIMAL_PRICE.matcher(text);
+        while (decimal.find()) {
+            String euros = decimal.group(1);
+            String cents = decimal.group(2);
+            boolean dash = !Character.isDigit(cents.charAt(0));
+            if (euros.isEmpty() && dash) {
+                continue;
+            }
+            int value = euros.isEmpty() ? 0 : Integer.parseInt(euros) * 100;
+            if (!dash) {
+                value += cents.length() == 1 ? Integer.parseInt(cents) * 10 : Integer.parseInt(cents);
+            }
+            return value;
+        }
+        Matcher integer = INTEGER_PRICE.matcher(text);
+        return integer.find() ? Integer.parseInt(integer.group(1)) * 100 : null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into offer_keys (id, offer_week, offer_key, pdf_file, page) values (?, ?, ?, ?, ?)", batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+-- Schema, wie es bis zur Einführung von Flyway Hibernate (ddl-auto: update) plus schema.sql angelegt hat.
+-- Läuft auch auf bestehenden Datenbanken (Baseline-Version 0) und ergänzt dort nur, was fehlt, je nachdem,
+-- mit welchem Stand sie zuletzt gestartet wurden. Alles hier muss deshalb wiederholbar sein.
+
+create table if not exists offer_data (
+    id                  bigint generated by default as identity primary key,
+    store_name          varchar(255),
+    product_name        varchar(255),
+    brand               varchar(255),
+    product_description varchar(255),
+    quantity            varchar(255),
+    price               varchar(255),
+    original_price      varchar(255),
+    app_price           varchar(255),
+    associated_pdf_file varchar(255),
+    calender_week       smallint,
+    offer_date_start    date,
+    offer_date_end      date
+);
+
+-- Spalten, die später dazukamen (normalisierte Preise, Checkpoints)
+alter table offer_data add column if not exists price_cents integer;
+alter table offer_data add column if not exists original_price_cents integer;
+alter table offer_data add column if not exists app_price_cents integer;
+alter table offer_data add column if not exists base_quantity numeric(12, 4);
+alter table offer_data add column if not exists base_unit varchar(8);
+alter table offer_data add column if not exists unit_price_cents integer;
+alter table offer_data add column if not exists normalizer_version smallint;
+alter table offer_data add column if not exists upload_file_id varchar(36);
+alter table offer_data add column if not exists page_index integer;
+
+create table if not exists upload_job (
+    id              varchar(36) primary key,
+    status          varchar(16) not null,
+    pages_per_chunk integer     not null,
+    created_at      timestamp(6) with time zone,
+    started_at      timestamp(6) with time zone,
+    finished_at     timestamp(6) with time zone,
+    error           text,
+    trace_parent    varchar(128)
+);
+alter table upload_job add column if not exists started_at timestamp(6) with time zone;
+alter table upload_job add column if not exists finished_at timestamp(6) with time zone;
+alter table upload_job add column if not exists error text;
+alter table upload_job add column if not exists trace_parent varchar(128);
+create index if not exists idx_upload_job_status on upload_job (status);
+
+create table if not exists upload_file (
+    id         varchar(36) primary key,
+    job_id     varchar(36) not null,
+    position   integer     not null,
+    filename   varchar(255),
+    page_count integer,
+    content    bytea
+);
+alter table upload_file add column if not exists page_count integer;
+alter table upload_file add column if not exists content bytea;
+create index if not exists idx_upload_file_job on upload_file (job_id, position);
+-- PDFs sind schon komprimiert; ohne Kompression liest substring() (JobCheckpointStore.loadFile) nur die nötigen Blöcke
+alter table upload_file alter column content set storage external;
+
+create table if not exists upload_page (
+    id          bigint generated by default as identity primary key,
+    job_id      varchar(36) not null,
+    file_id     varchar(36) not null,
+    page_index  integer     not null,
+    status      varchar(16) not null,
+    offer_count integer     not null,
+    attempts    integer     not null,
+    error       text,
+    lease_owner varchar(64),
+    lease_until timestamp(6) with time zone,
+    updated_at  timestamp(6) with time zone,
+    constraint uk_upload_page_file_page unique (file_id, page_index)
+);
+alter table upload_page add column if not exists attempts integer not null default 0;
+alter table upload_page add column if not exists error text;
+alter table upload_page add column if not exists lease_owner varchar(64);
+alter table upload_page add column if not exists lease_until timestamp(6) with time zone;
+alter table upload_page add column if not exists updated_at timestamp(6) with time zone;
+create index if not exists idx_upload_page_job_status on upload_page (job_id, status);
+
+create table if not exists extraction_cache (
+    cache_key        varchar(64) primary key,
+    offers_json      text    not null,
+    offer_count      integer not null,
+    size_bytes       integer not null,
+    created_at       timestamp(6) with time zone,
+    last_accessed_at timestamp(6) with time zone
+);
+create index if not exists idx_extraction_cache_last_accessed on extraction_cache (last_accessed_at);
+
+-- Seiten-Warteschlange (PageWorkQueue): nur offene Seiten indizieren, damit das Abholen klein bleibt
+create index if not exists idx_upload_page_claimable on upload_page (id) where status in ('PENDING', 'IN_PROGRESS');
+create index if not exists idx_upload_page_lease_owner on upload_page (lease_owner) where status = 'IN_PROGRESS';
+
+-- Die Indizes auf offer_data legt V2 zusammen mit der partitionierten Tabelle an
+create extension if not exists pg_trgm;
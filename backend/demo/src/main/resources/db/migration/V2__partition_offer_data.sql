@@ -0,0 +1,122 @@
+-- offer_data nach Angebotswoche partitionieren (eine Partition je Woche, Schlüssel offer_week = Montag).
+-- Alte Wochen werden von OfferPartitions als ganze Partition abgehängt und gelöscht statt zeilenweise.
+
+-- Montag der Angebotswoche. Mit Kalenderwoche: deren Montag in dem Jahr, das dem Angebotsbeginn (bzw. -ende,
+-- sonst fallback) am nächsten liegt, damit ein Filter auf calender_week auf wenige Partitionen beschränkt
+-- werden kann. Ohne gültige Kalenderwoche: Montag der Woche des Bezugsdatums.
+create or replace function offer_week(week smallint, date_start date, date_end date, fallback date)
+    returns date
+    language sql
+    stable
+as
+$$
+select coalesce(
+               (select w
+                from (select to_date(y || '-' || week || '-1', 'IYYY-IW-ID') as w
+                      from generate_series(extract(isoyear from r)::int - 1, extract(isoyear from r)::int + 1) as y
+                      where week between 1 and 53) candidates
+                where extract(week from w) = week
+                order by abs(w - r), w
+                limit 1),
+               date_trunc('week', r)::date)
+from (select coalesce(date_start, date_end, fallback) as r) reference
+$$;
+
+alter table offer_data rename to offer_data_unpartitioned;
+-- Hibernate legt id als Identity-Spalte an, ältere Schemas als bigserial; beide Sequenzen werden ersetzt
+alter table offer_data_unpartitioned alter column id drop identity if exists;
+alter table offer_data_unpartitioned alter column id drop default;
+drop sequence if exists offer_data_id_seq;
+
+create sequence offer_data_id_seq;
+
+-- Primärschlüssel und Indizes erst nach dem Kopieren, die Namen sind noch von der alten Tabelle belegt
+create table offer_data (
+    id                   bigint not null default nextval('offer_data_id_seq'),
+    store_name           varchar(255),
+    product_name         varchar(255),
+    brand                varchar(255),
+    product_description  varchar(255),
+    quantity             varchar(255),
+    price                varchar(255),
+    original_price       varchar(255),
+    app_price            varchar(255),
+    associated_pdf_file  varchar(255),
+    calender_week        smallint,
+    offer_date_start     date,
+    offer_date_end       date,
+    price_cents          integer,
+    original_price_cents integer,
+    app_price_cents      integer,
+    base_quantity        numeric(12, 4),
+    base_unit            varchar(8),
+    unit_price_cents     integer,
+    normalizer_version   smallint,
+    upload_file_id       varchar(36),
+    page_index           integer,
+    offer_week           date   not null,
+    search_vector        tsvector generated always as (to_tsvector('german',
+        coalesce(product_name, '') || ' ' || coalesce(brand, '') || ' ' || coalesce(product_description, ''))) stored
+) partition by range (offer_week);
+
+alter sequence offer_data_id_seq owned by offer_data.id;
+
+-- Fängt Wochen auf, für die (noch) keine Partition existiert; OfferPartitions verschiebt sie beim Anlegen
+create table offer_data_default partition of offer_data default;
+
+do
+$$
+    declare
+        week date;
+    begin
+        for week in select distinct offer_week(calender_week, offer_date_start, offer_date_end, current_date)
+                    from offer_data_unpartitioned
+            loop
+                execute format('create table %I partition of offer_data for values from (%L) to (%L)',
+                               'offer_data_p' || to_char(week, 'YYYYMMDD'), week, week + 7);
+            end loop;
+    end
+$$;
+
+insert into offer_data (id, store_name, product_name, brand, product_description, quantity, price, original_price,
+                        app_price, associated_pdf_file, calender_week, offer_date_start, offer_date_end, price_cents,
+                        original_price_cents, app_price_cents, base_quantity, base_unit, unit_price_cents,
+                        normalizer_version, upload_file_id, page_index, offer_week)
+select id, store_name, product_name, brand, product_description, quantity, price, original_price,
+       app_price, associated_pdf_file, calender_week, offer_date_start, offer_date_end, price_cents,
+       original_price_cents, app_price_cents, base_quantity, base_unit, unit_price_cents,
+       normalizer_version, upload_file_id, page_index,
+       offer_week(calender_week, offer_date_start, offer_date_end, current_date)
+from offer_data_unpartitioned;
+
+select setval('offer_data_id_seq', coalesce((select max(id) from offer_data), 0) + 1, false);
+
+drop table offer_data_unpartitioned;
+
+-- Der Partitionsschlüssel muss Teil des Primärschlüssels sein; id bleibt über die Sequenz eindeutig
+alter table offer_data add constraint offer_data_pkey primary key (id, offer_week);
+
+-- Indizes auf der partitionierten Tabelle gelten für jede Partition, auch für später angelegte
+
+-- Keyset-Paginierung: je sortierbarer Spalte (spalte, id)
+create index idx_offer_data_store_name_id on offer_data (store_name, id);
+create index idx_offer_data_product_name_id on offer_data (product_name, id);
+create index idx_offer_data_offer_date_start_id on offer_data (offer_date_start, id);
+create index idx_offer_data_calender_week_id on offer_data (calender_week, id);
+create index idx_offer_data_associated_pdf_file_id on offer_data (associated_pdf_file, id);
+
+-- Filter auf den Gültigkeitszeitraum und Kombination Woche + Markt
+create index idx_offer_data_offer_date_end on offer_data (offer_date_end);
+create index idx_offer_data_calender_week_store_name on offer_data (calender_week, store_name);
+
+-- Produktsuche (GET /api/offers/search, /api/offers/compare)
+create index idx_offer_data_search_vector on offer_data using gin (search_vector);
+create index idx_offer_data_product_name_trgm on offer_data using gin (product_name gin_trgm_ops);
+
+-- Normalisierte Preise (PriceNormalizer): Preisfilter, Sortierung und Grundpreisvergleich
+create index idx_offer_data_price_cents_id on offer_data (price_cents, id);
+create index idx_offer_data_unit_price_cents_id on offer_data (unit_price_cents, id);
+create index idx_offer_data_week_unit_price on offer_data (calender_week, base_unit, unit_price_cents);
+
+-- Dokumentkontext einer Datei wiederherstellen (JobCheckpointStore.restoreContext)
+create index idx_offer_data_upload_file_page on offer_data (upload_file_id, page_index);
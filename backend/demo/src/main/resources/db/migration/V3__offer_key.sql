@@ -0,0 +1,7 @@
+-- Kanonischer Angebotsschlüssel (OfferKey), alle Dateien, in denen das Angebot vorkam, und alle Seiten
+-- ('<upload_file_id>:<page_index>'), aus denen es gespeichert wurde. PageWorkQueue gibt darüber eine Seite frei,
+-- ohne Angebote zu löschen, die auch aus anderen Seiten stammen.
+-- Bestehende Zeilen berechnet und dedupliziert V4 (Java), V5 macht den Schlüssel eindeutig.
+alter table offer_data add column offer_key bytea;
+alter table offer_data add column source_pdf_files text[];
+alter table offer_data add column source_pages text[];
@@ -0,0 +1,14 @@
+alter table offer_data alter column offer_key set not null;
+alter table offer_data alter column source_pdf_files set default '{}';
+alter table offer_data alter column source_pdf_files set not null;
+alter table offer_data alter column source_pages set default '{}';
+alter table offer_data alter column source_pages set not null;
+
+-- Ziel von OfferSaver (insert ... on conflict); der Partitionsschlüssel muss Teil des Index sein
+create unique index uk_offer_data_offer_key on offer_data (offer_key, offer_week);
+
+-- Filter auf eine Datei (associatedPdfFile) sucht in source_pdf_files
+create index idx_offer_data_source_pdf_files on offer_data using gin (source_pdf_files);
+
+-- Freigeben einer Seite (OfferSaver.releasePages) sucht in source_pages
+create index idx_offer_data_source_pages on offer_data using gin (source_pages);
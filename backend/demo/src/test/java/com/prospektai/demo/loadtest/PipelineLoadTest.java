@@ -0,0 +1,251 @@
+package com.prospektai.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prospektai.demo.service.UploadJob;
+import com.prospektai.demo.service.UploadJobService;
+import com.prospektai.demo.service.UploadJobStatus;
+import com.prospektai.demo.service.UploadedPdf;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Durchsatzmessung der ganzen Pipeline: synthetische Prospekte laufen über
+ * {@link UploadJobService#submit} und die Seiten-Warteschlange gegen Postgres und einen lokalen
+ * {@link StubLlmServer}. Es wird kein Modellkontingent verbraucht und kein Netzwerk benötigt.
+ * <p>
+ * Läuft nur mit {@code mvn -Ploadtest test}. Stellschrauben als System-Properties:
+ * {@code loadtest.files}, {@code loadtest.pages}, {@code loadtest.scan-share},
+ * {@code loadtest.pages-per-chunk}, {@code loadtest.latency-ms}, {@code loadtest.jitter-ms},
+ * {@code loadtest.error-rate}, {@code loadtest.rate-429}, {@code loadtest.offers-per-page},
+ * {@code loadtest.seed}, {@code loadtest.timeout}. Mit {@code loadtest.jdbc-url} (plus
+ * {@code loadtest.jdbc-user}/{@code loadtest.jdbc-password}) wird statt der eingebetteten
+ * Instanz eine vorhandene Datenbank verwendet.
+ * <p>
+ * Das Ergebnis steht auf der Konsole und in {@code target/loadtest-report.json}.
+ */
+@Tag("loadtest")
+@SpringBootTest
+class PipelineLoadTest {
+
+	private static EmbeddedPostgres postgres;
+	private static StubLlmServer llm;
+
+	@TempDir
+	Path corpusDir;
+
+	@Autowired
+	private UploadJobService uploadJobService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@DynamicPropertySource
+	static void loadTestProperties(DynamicPropertyRegistry registry) throws IOException {
+		llm = new StubLlmServer(new StubLlmServer.Settings(
+				Long.getLong("loadtest.latency-ms", 800),
+				Long.getLong("loadtest.jitter-ms", 400),
+				doubleProperty("loadtest.error-rate", 0.02),
+				doubleProperty("loadtest.rate-429", 0.03),
+				Integer.getInteger("loadtest.offers-per-page", 12)));
+
+		String jdbcUrl = System.getProperty("loadtest.jdbc-url");
+		if (jdbcUrl == null) {
+			postgres = EmbeddedPostgres.start();
+			registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+			registry.add("spring.datasource.username", () -> "postgres");
+			registry.add("spring.datasource.password", () -> "postgres");
+		} else {
+			registry.add("spring.datasource.url", () -> jdbcUrl);
+			registry.add("spring.datasource.username", () -> System.getProperty("loadtest.jdbc-user", "postgres"));
+			registry.add("spring.datasource.password", () -> System.getProperty("loadtest.jdbc-password", "postgres"));
+		}
+
+		registry.add("spring.ai.openai.base-url", llm::baseUrl);
+		registry.add("spring.ai.openai.api-key", () -> "stub");
+		// Jede Seite soll den LLM-Aufruf durchlaufen, und nur der Job selbst soll schreiben
+		registry.add("prospekt.cache.enabled", () -> "false");
+		registry.add("prospekt.prices.backfill.enabled", () -> "false");
+		registry.add("prospekt.queue.poll-interval", () -> "PT0.2S");
+		registry.add("prospekt.llm.client.retry.initial-backoff", () -> "PT0.2S");
+		registry.add("logging.level.reactor.netty.http.client", () -> "INFO");
+		registry.add("logging.level.org.springframework.web.reactive.function.client", () -> "INFO");
+	}
+
+	@AfterAll
+	static void stopServers() throws IOException {
+		if (llm != null) {
+			llm.close();
+		}
+		if (postgres != null) {
+			postgres.close();
+		}
+	}
+
+	@Test
+	void throughput() throws Exception {
+		int files = Integer.getInteger("loadtest.files", 4);
+		int pages = Integer.getInteger("loadtest.pages", 24);
+		List<Path> corpus = SyntheticProspekts.generate(corpusDir, files, pages,
+				doubleProperty("loadtest.scan-share", 0.25), Long.getLong("loadtest.seed", 42));
+		List<UploadedPdf> pdfs = new ArrayList<>();
+		for (Path file : corpus) {
+			pdfs.add(new UploadedPdf(UUID.randomUUID().toString(), file, file.getFileName().toString()));
+		}
+
+		HeapSampler heap = new HeapSampler();
+		DbCounters before = dbCounters();
+		Instant start = Instant.now();
+
+		String jobId = uploadJobService.submit(pdfs, Integer.getInteger("loadtest.pages-per-chunk", 5));
+		UploadJobStatus status = awaitFinished(jobId, Duration.parse(System.getProperty("loadtest.timeout", "PT30M")));
+
+		Duration wall = Duration.between(start, Instant.now());
+		DbCounters after = dbCounters();
+		long peakHeap = heap.stop();
+
+		Map<String, Object> report = report(status, wall, peakHeap, before, after);
+		print(report);
+		Path target = Files.createDirectories(Path.of("target"));
+		objectMapper.writerWithDefaultPrettyPrinter().writeValue(target.resolve("loadtest-report.json").toFile(), report);
+
+		assertEquals(UploadJob.Status.COMPLETED, status.status(), "Job nicht abgeschlossen: " + status.failures());
+		assertEquals(files * pages, status.pagesDone() + status.pagesSkipped());
+		assertTrue(status.offersExtracted() > 0);
+	}
+
+	private UploadJobStatus awaitFinished(String jobId, Duration timeout) throws InterruptedException {
+		Instant deadline = Instant.now().plus(timeout);
+		while (Instant.now().isBefore(deadline)) {
+			UploadJobStatus status = uploadJobService.findStatus(jobId).orElseThrow();
+			if (status.status() == UploadJob.Status.COMPLETED || status.status() == UploadJob.Status.FAILED) {
+				return status;
+			}
+			Thread.sleep(250);
+		}
+		throw new IllegalStateException("Job " + jobId + " nach " + timeout + " nicht fertig");
+	}
+
+	private Map<String, Object> report(UploadJobStatus status, Duration wall, long peakHeap, DbCounters before, DbCounters after) {
+		double seconds = Math.max(0.001, wall.toMillis() / 1000.0);
+		int processed = status.pagesDone() + status.pagesSkipped();
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("status", status.status());
+		report.put("pagesTotal", status.pagesTotal());
+		report.put("pagesDone", status.pagesDone());
+		report.put("pagesSkipped", status.pagesSkipped());
+		report.put("pagesFailed", status.pagesFailed());
+		report.put("offersExtracted", status.offersExtracted());
+		report.put("wallSeconds", round(seconds));
+		report.put("pagesPerMinute", round(processed * 60 / seconds));
+		report.put("llmRequests", llm.requests.get());
+		report.put("llm429", llm.rateLimited.get());
+		report.put("llm500", llm.serverErrors.get());
+		report.put("llmRequestMegabytes", round(llm.requestBytes.get() / 1024.0 / 1024.0));
+		report.put("peakHeapMegabytes", round(peakHeap / 1024.0 / 1024.0));
+		report.put("dbRowsWrittenPerSecond", round((after.rowsWritten() - before.rowsWritten()) / seconds));
+		report.put("dbCommitsPerSecond", round((after.commits() - before.commits()) / seconds));
+		report.put("stages", status.stages());
+		return report;
+	}
+
+	private static void print(Map<String, Object> report) {
+		StringBuilder out = new StringBuilder("\n===== Lasttest =====\n");
+		report.forEach((key, value) -> {
+			if (!"stages".equals(key)) {
+				out.append(String.format(Locale.ROOT, "%-24s %s%n", key, value));
+			}
+		});
+		out.append(String.format(Locale.ROOT, "%n%-10s %8s %10s %8s %8s %8s%n", "Stufe", "Anzahl", "Summe ms", "p50 ms", "p99 ms", "max ms"));
+		@SuppressWarnings("unchecked")
+		Map<String, UploadJobStatus.StageStatus> stages = (Map<String, UploadJobStatus.StageStatus>) report.get("stages");
+		if (stages != null) {
+			stages.forEach((name, stage) -> out.append(String.format(Locale.ROOT, "%-10s %8d %10d %8d %8d %8d%n",
+					name, stage.count(), stage.totalMs(), stage.p50Ms(), stage.p99Ms(), stage.maxMs())));
+		}
+		System.out.println(out);
+	}
+
+	/**
+	 * Geschriebene Zeilen und Commits der Datenbank laut {@code pg_stat_database}; enthält auch die
+	 * Schreibzugriffe der Warteschlange selbst.
+	 */
+	private DbCounters dbCounters() {
+		jdbcTemplate.execute("select pg_stat_clear_snapshot()");
+		return jdbcTemplate.queryForObject("""
+				select tup_inserted + tup_updated + tup_deleted as rows_written, xact_commit
+				from pg_stat_database where datname = current_database()""",
+				(rs, rowNum) -> new DbCounters(rs.getLong("rows_written"), rs.getLong("xact_commit")));
+	}
+
+	private record DbCounters(long rowsWritten, long commits) {
+	}
+
+	/**
+	 * Tastet den belegten Heap alle 50 ms ab; GC-Spitzen zwischen zwei Messungen gehen verloren.
+	 */
+	private static final class HeapSampler {
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		private final AtomicLong peak = new AtomicLong();
+		private final Thread thread;
+		private volatile boolean running = true;
+
+		HeapSampler() {
+			System.gc();
+			thread = Thread.ofPlatform().daemon().name("loadtest-heap").start(() -> {
+				while (running) {
+					peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			});
+		}
+
+		long stop() throws InterruptedException {
+			running = false;
+			thread.join();
+			return peak.get();
+		}
+	}
+
+	private static double doubleProperty(String name, double defaultValue) {
+		String value = System.getProperty(name);
+		return value != null ? Double.parseDouble(value) : defaultValue;
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 100) / 100.0;
+	}
+}
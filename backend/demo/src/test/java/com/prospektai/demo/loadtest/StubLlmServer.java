@@ -0,0 +1,202 @@
+package com.prospektai.demo.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OpenAI-kompatibler Endpunkt ({@code POST .../chat/completions}) auf 127.0.0.1, der nach einer
+ * einstellbaren Latenz feste Angebote zurückgibt. Fehler und 429 werden zufällig eingestreut,
+ * damit Retry, Ratenlimit und Circuit-Breaker unter Last mitgemessen werden.
+ */
+class StubLlmServer implements AutoCloseable {
+
+	private static final Pattern PAGE_MARKER = Pattern.compile("pageIndex (\\d+):");
+	private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+	private final Settings settings;
+	private final HttpServer server;
+	private final String offersJson;
+
+	final AtomicLong requests = new AtomicLong();
+	final AtomicLong rateLimited = new AtomicLong();
+	final AtomicLong serverErrors = new AtomicLong();
+	final AtomicLong requestBytes = new AtomicLong();
+
+	/**
+	 * @param latencyMs  Grundlatenz je Request
+	 * @param jitterMs   zusätzliche gleichverteilte Latenz 0..jitterMs
+	 * @param errorRate  Anteil der Requests mit 500
+	 * @param rate429    Anteil der Requests mit 429 und {@code Retry-After}
+	 * @param offersPerPage Angebote je Seite in der Antwort
+	 */
+	record Settings(long latencyMs, long jitterMs, double errorRate, double rate429, int offersPerPage) {
+	}
+
+	StubLlmServer(Settings settings) throws IOException {
+		this.settings = settings;
+		this.offersJson = cannedOffers(settings.offersPerPage());
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	String baseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			String body;
+			try (InputStream in = exchange.getRequestBody()) {
+				byte[] bytes = in.readAllBytes();
+				requestBytes.addAndGet(bytes.length);
+				body = new String(bytes, StandardCharsets.UTF_8);
+			}
+			requests.incrementAndGet();
+
+			sleep(settings.latencyMs() + (settings.jitterMs() > 0 ? ThreadLocalRandom.current().nextLong(settings.jitterMs() + 1) : 0));
+
+			double roll = ThreadLocalRandom.current().nextDouble();
+			if (roll < settings.rate429()) {
+				rateLimited.incrementAndGet();
+				exchange.getResponseHeaders().add("Retry-After", "1");
+				send(exchange, 429, "application/json", "{\"error\":{\"message\":\"rate limit\"}}");
+				return;
+			}
+			if (roll < settings.rate429() + settings.errorRate()) {
+				serverErrors.incrementAndGet();
+				send(exchange, 500, "application/json", "{\"error\":{\"message\":\"stub error\"}}");
+				return;
+			}
+
+			String content = content(pageIndices(body));
+			// Grobe Schätzung wie bei OpenAI: etwa vier Zeichen je Token
+			String usage = String.format(Locale.ROOT, "{\"prompt_tokens\":%d,\"completion_tokens\":%d,\"total_tokens\":%d}",
+					body.length() / 4, content.length() / 4, (body.length() + content.length()) / 4);
+			if (body.contains("\"stream\":true")) {
+				send(exchange, 200, "text/event-stream", streamed(content, body.contains("\"include_usage\":true") ? usage : null));
+			} else {
+				send(exchange, 200, "application/json", completion(content, usage));
+			}
+		}
+	}
+
+	/**
+	 * Seiten eines Mehrseiten-Requests anhand der Marker {@code pageIndex n:}; ohne Marker eine Seite.
+	 */
+	private static Set<Integer> pageIndices(String body) {
+		Set<Integer> pages = new TreeSet<>();
+		Matcher matcher = PAGE_MARKER.matcher(body);
+		while (matcher.find()) {
+			pages.add(Integer.parseInt(matcher.group(1)));
+		}
+		return pages;
+	}
+
+	private String content(Set<Integer> pages) {
+		if (pages.isEmpty()) {
+			return "{\"offers\":[" + offersJson.replace(",\"pageIndex\":0", "") + "]}";
+		}
+		StringBuilder offers = new StringBuilder();
+		for (int page : pages) {
+			if (!offers.isEmpty()) {
+				offers.append(',');
+			}
+			offers.append(offersJson.replace("\"pageIndex\":0", "\"pageIndex\":" + page));
+		}
+		return "{\"offers\":[" + offers + "]}";
+	}
+
+	private static String cannedOffers(int count) {
+		LocalDate monday = LocalDate.now().with(DayOfWeek.MONDAY);
+		String start = monday.format(DATE);
+		String end = monday.plusDays(5).format(DATE);
+		int week = monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+		StringBuilder offers = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				offers.append(',');
+			}
+			offers.append(String.format(Locale.ROOT, """
+					{"storeName":"Stub-Markt","productName":"Artikel %d","productDescription":"500 g","quantity":"500 g",\
+					"brand":"Hausmarke","originalPrice":"%d,49","price":"%d,99","appPrice":"","offerDateStart":"%s",\
+					"offerDateEnd":"%s","calenderWeek":%d,"pageIndex":0}""", i + 1, i + 2, i + 1, start, end, week));
+		}
+		return offers.toString();
+	}
+
+	private static String completion(String content, String usage) {
+		return "{\"id\":\"stub\",\"object\":\"chat.completion\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+				+ quote(content) + "},\"finish_reason\":\"stop\"}],\"usage\":" + usage + "}";
+	}
+
+	/**
+	 * Liefert den Inhalt in mehreren SSE-Events, damit der inkrementelle Parser Fragmente zusammensetzen muss.
+	 *
+	 * @param usage Verbrauch für das letzte Event ohne {@code choices}, oder {@code null}
+	 */
+	private static String streamed(String content, String usage) {
+		StringBuilder events = new StringBuilder();
+		for (int i = 0; i < content.length(); i += 64) {
+			String fragment = content.substring(i, Math.min(content.length(), i + 64));
+			events.append("data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":").append(quote(fragment)).append("}}]}\n\n");
+		}
+		if (usage != null) {
+			events.append("data: {\"choices\":[],\"usage\":").append(usage).append("}\n\n");
+		}
+		return events.append("data: [DONE]\n\n").toString();
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void sleep(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.prospektai.demo.loadtest;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Erzeugt reproduzierbare Prospekte im A4-Format. Die Mischung entspricht grob echten Uploads:
+ * <ul>
+ *     <li>Angebotsseiten mit Textebene (Produktkacheln mit Name, Menge und Preis)</li>
+ *     <li>Titel- und Rezeptseiten ohne Preise, die der Vorfilter überspringen darf</li>
+ *     <li>gescannte Seiten ohne Textebene (ein ganzseitiges Bild), die gerendert werden müssen</li>
+ * </ul>
+ * Die Benchmarks in {@code com.prospektai.demo.service} verwenden einzelne Seiten als Fixtures.
+ */
+public final class SyntheticProspekts {
+
+	private static final String[] PRODUCTS = {
+			"Vollmilch 3,5 %", "Butter", "Gouda jung", "Bananen", "Tomaten", "Rinderhackfleisch",
+			"Hähnchenbrustfilet", "Spaghetti", "Basmatireis", "Orangensaft", "Mineralwasser", "Kaffee",
+			"Schokolade", "Joghurt natur", "Frischkäse", "Äpfel Elstar", "Kartoffeln festkochend", "Toastbrot"
+	};
+
+	private static final String[] UNITS = {"1 l", "250 g", "400 g", "1 kg", "500 g", "6 x 1,5 l", "200 g", "2,5 kg"};
+
+	public enum PageKind { COVER, OFFERS, RECIPE, SCAN }
+
+	private SyntheticProspekts() {
+	}
+
+	/**
+	 * @param scanShare Anteil gescannter Seiten ohne Textebene
+	 * @return die erzeugten Dateien
+	 */
+	public static List<Path> generate(Path dir, int files, int pagesPerFile, double scanShare, long seed) throws IOException {
+		Random random = new Random(seed);
+		List<Path> result = new ArrayList<>();
+		for (int f = 0; f < files; f++) {
+			Path file = dir.resolve(String.format(Locale.ROOT, "prospekt-%03d.pdf", f + 1));
+			try (PDDocument document = new PDDocument()) {
+				for (int p = 0; p < pagesPerFile; p++) {
+					PageKind kind;
+					if (p == 0) {
+						kind = PageKind.COVER;
+					} else if (p % 8 == 7) {
+						kind = PageKind.RECIPE;
+					} else {
+						kind = random.nextDouble() < scanShare ? PageKind.SCAN : PageKind.OFFERS;
+					}
+					addPage(document, kind, random);
+				}
+				document.save(file.toFile());
+			}
+			result.add(file);
+		}
+		return result;
+	}
+
+	public static void addPage(PDDocument document, PageKind kind, Random random) throws IOException {
+		PDPage page = new PDPage(PDRectangle.A4);
+		document.addPage(page);
+		switch (kind) {
+			case COVER -> writeCover(document, page, document.getNumberOfPages());
+			case OFFERS -> writeOffers(document, page, random);
+			case RECIPE -> writeRecipe(document, page);
+			case SCAN -> writeScan(document, page, random);
+		}
+	}
+
+	private static void writeCover(PDDocument document, PDPage page, int number) throws IOException {
+		try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+			content.setNonStrokingColor(new Color(200, 20, 30));
+			content.addRect(0, 0, page.getMediaBox().getWidth(), page.getMediaBox().getHeight());
+			content.fill();
+			content.setNonStrokingColor(Color.WHITE);
+			text(content, PDType1Font.HELVETICA_BOLD, 48, 60, 600, "Stub-Markt");
+			text(content, PDType1Font.HELVETICA, 24, 60, 550, "Wochenprospekt Nr. " + number);
+			text(content, PDType1Font.HELVETICA, 14, 60, 520, "Frische und Qualität für die ganze Familie");
+		}
+	}
+
+	private static void writeRecipe(PDDocument document, PDPage page) throws IOException {
+		try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+			text(content, PDType1Font.HELVETICA_BOLD, 28, 50, 780, "Rezept der Woche: Gemüsepfanne");
+			float y = 740;
+			for (String line : List.of(
+					"Zwiebeln und Knoblauch schälen und fein würfeln.",
+					"Paprika, Zucchini und Karotten waschen und in Streifen schneiden.",
+					"Öl in einer großen Pfanne erhitzen und die Zwiebeln glasig dünsten.",
+					"Das Gemüse dazugeben und bei mittlerer Hitze unter Rühren garen.",
+					"Mit Salz, Pfeffer und frischen Kräutern abschmecken und servieren.",
+					"Dazu passen Reis, Nudeln oder frisches Baguette.")) {
+				text(content, PDType1Font.HELVETICA, 13, 50, y, line);
+				y -= 22;
+			}
+		}
+	}
+
+	private static void writeOffers(PDDocument document, PDPage page, Random random) throws IOException {
+		float width = page.getMediaBox().getWidth();
+		try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+			text(content, PDType1Font.HELVETICA_BOLD, 18, 40, 800, "Gültig von Montag bis Samstag");
+			for (int row = 0; row < 4; row++) {
+				for (int col = 0; col < 3; col++) {
+					float x = 30 + col * (width - 60) / 3;
+					float y = 600 - row * 180;
+					content.setNonStrokingColor(new Color(230 + random.nextInt(20), 230 + random.nextInt(20), 200));
+					content.addRect(x + 5, y, (width - 60) / 3 - 10, 170);
+					content.fill();
+					content.setNonStrokingColor(Color.BLACK);
+					String product = PRODUCTS[random.nextInt(PRODUCTS.length)];
+					String unit = UNITS[random.nextInt(UNITS.length)];
+					int cents = 49 + random.nextInt(1500);
+					text(content, PDType1Font.HELVETICA_BOLD, 12, x + 12, y + 145, product);
+					text(content, PDType1Font.HELVETICA, 10, x + 12, y + 128, unit + " Packung");
+					text(content, PDType1Font.HELVETICA, 9, x + 12, y + 112,
+							String.format(Locale.GERMANY, "1 kg = %.2f €", cents * 2.5 / 100));
+					text(content, PDType1Font.HELVETICA, 9, x + 12, y + 40,
+							String.format(Locale.GERMANY, "statt %.2f", (cents + 30 + random.nextInt(200)) / 100.0));
+					text(content, PDType1Font.HELVETICA_BOLD, 26, x + 12, y + 12,
+							String.format(Locale.GERMANY, "%.2f", cents / 100.0));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ganzseitiges Bild mit Kacheln und Rauschen, damit die Kantendichte einer echten Angebotsseite ähnelt.
+	 */
+	private static void writeScan(PDDocument document, PDPage page, Random random) throws IOException {
+		BufferedImage image = new BufferedImage(1240, 1754, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, image.getWidth(), image.getHeight());
+			for (int row = 0; row < 4; row++) {
+				for (int col = 0; col < 3; col++) {
+					g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+					g.fillRect(40 + col * 400, 200 + row * 380, 360, 340);
+					g.setColor(Color.BLACK);
+					g.drawString(String.format(Locale.GERMANY, "%.2f", (49 + random.nextInt(1500)) / 100.0),
+							60 + col * 400, 500 + row * 380);
+				}
+			}
+			for (int i = 0; i < 20_000; i++) {
+				image.setRGB(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()), random.nextInt());
+			}
+		} finally {
+			g.dispose();
+		}
+		PDImageXObject xObject = JPEGFactory.createFromImage(document, image, 0.75f);
+		try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+			PDRectangle box = page.getMediaBox();
+			content.drawImage(xObject, 0, 0, box.getWidth(), box.getHeight());
+		}
+	}
+
+	private static void text(PDPageContentStream content, PDType1Font font, float size, float x, float y, String text) throws IOException {
+		content.beginText();
+		content.setFont(font, size);
+		content.newLineAtOffset(x, y);
+		content.showText(text);
+		content.endText();
+	}
+}
@@ -0,0 +1,133 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prospektai.demo.config.RenderProperties;
+import com.prospektai.demo.loadtest.SyntheticProspekts;
+import com.prospektai.demo.loadtest.SyntheticProspekts.PageKind;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Gemeinsame Eingaben der JMH-Benchmarks. Ohne weitere Angaben sind das synthetische Seiten aus
+ * {@link SyntheticProspekts}; mit {@code -Dbenchmark.pdf=<datei>} wird ein echter Prospekt
+ * verwendet, die Seiten wählen dann {@code -Dbenchmark.offers-page} und {@code -Dbenchmark.scan-page}
+ * (0-basiert).
+ */
+final class BenchmarkFixtures {
+
+	private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Dokument mit einer Seite je {@link PageKind}, in der Reihenfolge der Enum-Konstanten.
+	 */
+	static PDDocument document() throws IOException {
+		String pdf = System.getProperty("benchmark.pdf");
+		if (pdf != null) {
+			return PDDocument.load(new File(pdf));
+		}
+		PDDocument document = new PDDocument();
+		Random random = new Random(42);
+		for (PageKind kind : PageKind.values()) {
+			SyntheticProspekts.addPage(document, kind, random);
+		}
+		// Gespeichert und neu geladen, damit die Seiten wie ein hochgeladenes PDF geparst werden
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		document.save(bytes);
+		document.close();
+		return PDDocument.load(bytes.toByteArray());
+	}
+
+	static int pageIndex(PageKind kind) {
+		if (System.getProperty("benchmark.pdf") != null) {
+			return Integer.getInteger("benchmark." + kind.name().toLowerCase(Locale.ROOT) + "-page", 0);
+		}
+		return kind.ordinal();
+	}
+
+	static BufferedImage render(PageKind kind, float dpi, ImageType type) throws IOException {
+		try (PDDocument document = document()) {
+			return new PDFRenderer(document).renderImageWithDPI(pageIndex(kind), dpi, type);
+		}
+	}
+
+	/**
+	 * Seitenbild wie mit dem Profil {@code medium} aus der application.yml.
+	 */
+	static EncodedImage encodedPage(PageKind kind) throws IOException {
+		RenderProperties.EncodingProfile profile = profile("medium", RenderProperties.ImageFormat.JPEG, 0.8f);
+		return imageEncoder().encode(render(kind, profile.dpi(), ImageType.RGB), profile);
+	}
+
+	static RenderProperties.EncodingProfile profile(String name, RenderProperties.ImageFormat format, float quality) {
+		return new RenderProperties.EncodingProfile(name, 150, 1800, quality, false, format, 0);
+	}
+
+	static ImageEncoder imageEncoder() {
+		return new ImageEncoder(new RenderProperties("auto", 24, List.of(), null));
+	}
+
+	/**
+	 * Wie der ObjectMapper von Spring Boot: Java-Time-Modul, unbekannte Felder werden ignoriert.
+	 */
+	static ObjectMapper objectMapper() {
+		return Jackson2ObjectMapperBuilder.json().build();
+	}
+
+	/**
+	 * Client mit Modell und Prompts aus der application.yml, ohne WebClient; nur für
+	 * {@link OpenAiClient#writePayload} und {@link OpenAiClient#parseOffers}.
+	 */
+	static OpenAiClient openAiClient(ObjectMapper objectMapper) throws IOException {
+		YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+		yaml.setResources(new ClassPathResource("application.yml"));
+		Properties properties = yaml.getObject();
+
+		OpenAiClient client = new OpenAiClient(null, objectMapper, null);
+		ReflectionTestUtils.setField(client, "systemPrompt", properties.getProperty("spring.ai.openai.system-prompt"));
+		ReflectionTestUtils.setField(client, "userPrompt", properties.getProperty("spring.ai.openai.user-prompt"));
+		ReflectionTestUtils.setField(client, "model", properties.getProperty("spring.ai.openai.model"));
+		client.precompileSchema();
+		return client;
+	}
+
+	/**
+	 * Antwortinhalt wie vom Modell, eingefasst in einen {@code ```json}-Block.
+	 */
+	static String response(int pages, int offersPerPage) {
+		LocalDate start = LocalDate.now();
+		StringBuilder json = new StringBuilder("```json\n{\"offers\":[");
+		for (int page = 0; page < pages; page++) {
+			for (int i = 0; i < offersPerPage; i++) {
+				if (page > 0 || i > 0) {
+					json.append(',');
+				}
+				json.append(String.format(Locale.ROOT, """
+						{"storeName":"Stub-Markt","productName":"Artikel %d","productDescription":"500 g Packung, 1 kg = %d,98 €",\
+						"quantity":"500 g","brand":"Hausmarke","originalPrice":"%d,49","price":"%d,99","appPrice":"",\
+						"offerDateStart":"%s","offerDateEnd":"%s","calenderWeek":%d%s}""",
+						i + 1, 2 * i + 3, i + 2, i + 1, start.format(DATE), start.plusDays(5).format(DATE), 42,
+						pages > 1 ? ",\"pageIndex\":" + page : ""));
+			}
+		}
+		return json.append("]}\n```").toString();
+	}
+}
@@ -0,0 +1,73 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties;
+import com.prospektai.demo.loadtest.SyntheticProspekts.PageKind;
+import org.apache.pdfbox.rendering.ImageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kodieren einer mit 150 DPI gerenderten Seite: {@link ImageEncoder} mit wiederverwendetem Writer
+ * und Puffer gegen {@link ImageIO#write} mit Standardeinstellungen. Die Größe des Ergebnisses steht
+ * nicht im JMH-Bericht; sie lässt sich unter {@code /api/stats/encoding-profiles} vergleichen.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodeBenchmark {
+
+	@Param({"OFFERS", "SCAN"})
+	public PageKind page;
+
+	@Param({"RGB", "GRAY"})
+	public ImageType imageType;
+
+	@Param({"JPEG", "PNG"})
+	public RenderProperties.ImageFormat format;
+
+	/** Nur für JPEG wirksam. */
+	@Param({"0.7", "0.85"})
+	public float quality;
+
+	private BufferedImage image;
+	private ImageEncoder encoder;
+	private RenderProperties.EncodingProfile profile;
+
+	@Setup
+	public void render() throws IOException {
+		image = BenchmarkFixtures.render(page, 150, imageType);
+		encoder = BenchmarkFixtures.imageEncoder();
+		profile = BenchmarkFixtures.profile("benchmark", format, quality);
+	}
+
+	@Benchmark
+	public EncodedImage imageEncoder() throws IOException {
+		return encoder.encode(image, profile);
+	}
+
+	@Benchmark
+	public byte[] imageIoWrite() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format.name().toLowerCase(Locale.ROOT), out);
+		return out.toByteArray();
+	}
+}
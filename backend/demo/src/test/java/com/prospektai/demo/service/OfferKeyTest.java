@@ -0,0 +1,94 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OfferKeyTest {
+
+	private final PriceNormalizer priceNormalizer = new PriceNormalizer();
+
+	@Test
+	void regionalEditionWithDifferentSpellingGetsSameKey() {
+		byte[] nord = key(offer -> {
+		});
+		byte[] sued = key(offer -> {
+			offer.setStoreName("ALDI  Nord");
+			offer.setProductName("Frische Vollmilch 3.5 %");
+			offer.setBrand("MILSANI");
+			offer.setPrice("1.19 €");
+			offer.setProductDescription("andere Beschreibung");
+			offer.setAssociatedPdfFile("kw42-sued.pdf");
+		});
+
+		assertArrayEquals(nord, sued);
+		assertEquals(32, nord.length);
+	}
+
+	@Test
+	void fullwidthAndCompatibilityCharactersAreFolded() {
+		assertEquals("milch35", OfferKey.text("Ｍｉｌｃｈ ３,５ %"));
+		assertEquals("", OfferKey.text(null));
+	}
+
+	@Test
+	void priceCountsAsCentsWhenReadable() {
+		assertArrayEquals(key(offer -> offer.setPrice("1,19")), key(offer -> offer.setPrice("1.19 EUR")));
+		assertFalse(same(key(offer -> offer.setPrice("1,19")), key(offer -> offer.setPrice("1,29"))));
+		// nicht lesbar: der Text selbst zählt
+		assertFalse(same(key(offer -> offer.setPrice("gratis")), key(offer -> offer.setPrice("nur heute"))));
+	}
+
+	@Test
+	void everyKeyFieldChangesTheKey() {
+		byte[] base = key(offer -> {
+		});
+		assertFalse(same(base, key(offer -> offer.setStoreName("Lidl"))));
+		assertFalse(same(base, key(offer -> offer.setQuantity("500 ml"))));
+		assertFalse(same(base, key(offer -> offer.setOfferDateStart(LocalDate.of(2026, 10, 13)))));
+		assertFalse(same(base, key(offer -> offer.setOfferDateEnd(null))));
+		assertFalse(same(base, key(offer -> offer.setCalenderWeek((byte) 43))));
+		assertFalse(same(base, key(offer -> offer.setCalenderWeek(null))));
+	}
+
+	@Test
+	void fieldsDoNotRunTogether() {
+		assertFalse(same(
+				key(offer -> {
+					offer.setProductName("Milch");
+					offer.setBrand("Frisch");
+				}),
+				key(offer -> {
+					offer.setProductName("Milchfrisch");
+					offer.setBrand(null);
+				})));
+	}
+
+	private byte[] key(Consumer<OfferEntity> change) {
+		OfferEntity offer = OfferEntity.builder()
+				.storeName("Aldi Nord")
+				.productName("Frische Vollmilch 3,5%")
+				.brand("Milsani")
+				.quantity("1 l")
+				.price("1,19 €")
+				.calenderWeek((byte) 42)
+				.offerDateStart(LocalDate.of(2026, 10, 12))
+				.offerDateEnd(LocalDate.of(2026, 10, 17))
+				.associatedPdfFile("kw42-nord.pdf")
+				.build();
+		change.accept(offer);
+		priceNormalizer.normalize(offer);
+		return OfferKey.of(offer);
+	}
+
+	private static boolean same(byte[] a, byte[] b) {
+		return Arrays.equals(a, b);
+	}
+}
@@ -0,0 +1,180 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Upsert über {@code (offer_key, offer_week)} gegen eine echte Postgres-Instanz mit dem Schema
+ * aus den Flyway-Migrationen, wie in {@link PageWorkQueueTest}.
+ */
+class OfferSaverTest {
+
+	private static EmbeddedPostgres postgres;
+	private static DataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+	private OfferSaver offerSaver;
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		dataSource = postgres.getPostgresDatabase();
+		Flyway.configure().dataSource(dataSource).load().migrate();
+	}
+
+	@AfterAll
+	static void stopDatabase() throws Exception {
+		postgres.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("truncate offer_data, upload_file");
+		offerSaver = new OfferSaver(null, jdbcTemplate, new PriceNormalizer());
+		ReflectionTestUtils.setField(offerSaver, "batchSize", 2);
+	}
+
+	@Test
+	void duplicatesWithinOnePageAreWrittenOnce() {
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0), offer("Milch", 42, "a.pdf", "file-a", 0),
+				offer("Butter", 42, "a.pdf", "file-a", 0)));
+
+		assertEquals(2, count("select count(*) from offer_data"));
+	}
+
+	@Test
+	void sameOfferFromAnotherFileIsMergedIntoExistingRow() {
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0)));
+		offerSaver.saveAll(List.of(offer("Milch", 42, "b.pdf", "file-b", 3)));
+
+		Map<String, Object> row = jdbcTemplate.queryForMap("""
+				select array_to_string(source_pdf_files, ',') as files, array_to_string(source_pages, ',') as pages,
+				       associated_pdf_file, upload_file_id, page_index
+				from offer_data""");
+		assertEquals("a.pdf,b.pdf", row.get("files"));
+		assertEquals("file-a:0,file-b:3", row.get("pages"));
+		assertEquals("a.pdf", row.get("associated_pdf_file"));
+		assertEquals("file-a", row.get("upload_file_id"));
+		assertEquals(0, row.get("page_index"));
+	}
+
+	@Test
+	void savingTheSamePageAgainChangesNothing() {
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0)));
+		long version = xmin();
+
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0)));
+
+		assertEquals(1, count("select count(*) from offer_data"));
+		assertEquals(version, xmin());
+	}
+
+	/**
+	 * Gleiches Angebot ohne Gültigkeitsdatum in zwei Kalenderwochen: zwei Angebotswochen, also
+	 * zwei Zeilen, auch wenn beide im selben Batch stehen.
+	 */
+	@Test
+	void sameOfferInDifferentWeeksKeepsOneRowPerWeek() {
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0), offer("Milch", 43, "a.pdf", "file-a", 0)));
+
+		assertEquals(List.of((short) 42, (short) 43), jdbcTemplate.queryForList(
+				"select calender_week from offer_data order by calender_week", Short.class));
+		assertEquals(2, count("select count(distinct offer_week) from offer_data"));
+	}
+
+	@Test
+	void releasedPageDeletesOffersOnlyFromThatPage() {
+		uploadFile("file-a", "a.pdf");
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0)));
+		offerSaver.saveAll(List.of(offer("Butter", 42, "a.pdf", "file-a", 1)));
+
+		offerSaver.releasePages("file-a", List.of(0));
+
+		assertEquals(List.of("Butter"), jdbcTemplate.queryForList("select product_name from offer_data", String.class));
+	}
+
+	@Test
+	void releasedPageKeepsOfferSharedWithAnotherPage() {
+		uploadFile("file-a", "a.pdf");
+		uploadFile("file-b", "b.pdf");
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0)));
+		offerSaver.saveAll(List.of(offer("Milch", 42, "b.pdf", "file-b", 3)));
+
+		offerSaver.releasePages("file-a", List.of(0));
+
+		Map<String, Object> row = source();
+		assertEquals("b.pdf", row.get("files"));
+		assertEquals("file-b:3", row.get("pages"));
+		assertEquals("b.pdf", row.get("associated_pdf_file"));
+		assertEquals("file-b", row.get("upload_file_id"));
+		assertEquals(3, row.get("page_index"));
+	}
+
+	/**
+	 * Angebot aus der Zeit vor {@code source_pages}: die alte Datei hat keine Seite, trägt das
+	 * Angebot aber weiter.
+	 */
+	@Test
+	void releasedPageKeepsOfferSharedWithLegacyFile() {
+		uploadFile("file-a", "a.pdf");
+		offerSaver.saveAll(List.of(offer("Milch", 42, "alt.pdf", null, null)));
+		offerSaver.saveAll(List.of(offer("Milch", 42, "a.pdf", "file-a", 0)));
+
+		offerSaver.releasePages("file-a", List.of(0));
+
+		Map<String, Object> row = source();
+		assertEquals("alt.pdf", row.get("files"));
+		assertEquals("", row.get("pages"));
+		assertEquals("alt.pdf", row.get("associated_pdf_file"));
+	}
+
+	private void uploadFile(String fileId, String filename) {
+		jdbcTemplate.update("insert into upload_file (id, job_id, position, filename) values (?, 'job', 0, ?)", fileId, filename);
+	}
+
+	private Map<String, Object> source() {
+		return jdbcTemplate.queryForMap("""
+				select array_to_string(source_pdf_files, ',') as files, array_to_string(source_pages, ',') as pages,
+				       associated_pdf_file, upload_file_id, page_index
+				from offer_data""");
+	}
+
+	private static OfferEntity offer(String product, int calenderWeek, String filename, String fileId, Integer pageIndex) {
+		return OfferEntity.builder()
+				.storeName("Aldi Nord")
+				.productName(product)
+				.brand("Milsani")
+				.quantity("1 l")
+				.price("1,19 €")
+				.calenderWeek((byte) calenderWeek)
+				.associatedPdfFile(filename)
+				.uploadFileId(fileId)
+				.pageIndex(pageIndex)
+				.build();
+	}
+
+	private long xmin() {
+		Long xmin = jdbcTemplate.queryForObject("select xmin::text::bigint from offer_data", Long.class);
+		return xmin != null ? xmin : 0;
+	}
+
+	private int count(String sql) {
+		Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+		return count != null ? count : 0;
+	}
+}
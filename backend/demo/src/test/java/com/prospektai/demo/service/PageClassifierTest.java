@@ -0,0 +1,126 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.config.RenderProperties;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageClassifierTest {
+
+	private static final String OFFERS = "Vollmilch 3,5 % 1 l nur 1,19 € Deutsche Markenbutter 250 g 2,29 € "
+			+ "Gouda jung 400 g 3.49 € Bananen 1 kg 1.- Kaffee 500 g 4,99 €";
+	private static final String RECIPE = "Unser Rezept der Woche: Kürbissuppe mit Ingwer. Zwiebel und Knoblauch "
+			+ "andünsten, Kürbis dazugeben, mit Brühe aufgießen und fein pürieren.";
+
+	@Test
+	void offerPageIsKept() throws IOException {
+		try (PDDocument document = page(0)) {
+			PageClassifier.Verdict verdict = classifier(PageClassifier.Mode.SKIP).classify(document, new PDFRenderer(document), 0, text(OFFERS));
+
+			assertEquals(1.0, verdict.score(), 1e-9);
+			assertFalse(verdict.skip());
+		}
+	}
+
+	@Test
+	void recipeOnFullPagePhotoIsSkipped() throws IOException {
+		try (PDDocument document = page(1)) {
+			PageClassifier.Verdict verdict = classifier(PageClassifier.Mode.SKIP).classify(document, new PDFRenderer(document), 0, text(RECIPE));
+
+			assertEquals(0.0, verdict.score(), 1e-6);
+			assertTrue(verdict.skip());
+		}
+	}
+
+	@Test
+	void observeModeOnlyScores() throws IOException {
+		try (PDDocument document = page(1)) {
+			PageClassifier.Verdict verdict = classifier(PageClassifier.Mode.OBSERVE).classify(document, new PDFRenderer(document), 0, text(RECIPE));
+
+			assertTrue(verdict.score() < 0.15);
+			assertFalse(verdict.skip());
+		}
+	}
+
+	/**
+	 * Eine einzelne Preisangabe: die Bildfläche entscheidet mit 10 % über den Score.
+	 */
+	@Test
+	void imageCoverageLowersScore() throws IOException {
+		String text = "Diese Woche bei uns: frischer Kaffee aus eigener Röstung nur 4,99";
+		double[] scores = new double[3];
+		double[] coverages = {0, 0.5, 1};
+		for (int i = 0; i < coverages.length; i++) {
+			try (PDDocument document = page(coverages[i])) {
+				scores[i] = classifier(PageClassifier.Mode.SKIP).classify(document, new PDFRenderer(document), 0, text(text)).score();
+			}
+		}
+
+		assertEquals(0.05, scores[0] - scores[1], 1e-6);
+		assertEquals(0.10, scores[0] - scores[2], 1e-6);
+		// 1 von 3 Preisen für den vollen Preisanteil
+		assertTrue(scores[2] > 0.7 / 3 && scores[2] < 0.7 / 3 + 0.2);
+	}
+
+	@Test
+	void emptyPageWithoutTextLayerIsSkipped() throws IOException {
+		try (PDDocument document = page(0)) {
+			PageClassifier classifier = classifier(PageClassifier.Mode.SKIP);
+
+			assertTrue(classifier.classify(document, new PDFRenderer(document), 0, null).skip());
+			// Zu wenig Text ("Seite 2") zählt wie keine Textebene
+			assertTrue(classifier.classify(document, new PDFRenderer(document), 0, text("Seite 2")).skip());
+		}
+	}
+
+	private static PageClassifier classifier(PageClassifier.Mode mode) {
+		return new PageClassifier(new RenderProperties("auto", 24, List.of(), null), mode, 0.15, 3, 0.02);
+	}
+
+	/**
+	 * A4-Seite, deren linker Anteil {@code imageFraction} von einem eingebetteten Bild bedeckt ist.
+	 */
+	private static PDDocument page(double imageFraction) throws IOException {
+		PDDocument document = new PDDocument();
+		PDPage page = new PDPage(PDRectangle.A4);
+		document.addPage(page);
+		if (imageFraction > 0) {
+			PDImageXObject image = LosslessFactory.createFromImage(document, new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB));
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				content.drawImage(image, 0, 0, PDRectangle.A4.getWidth() * (float) imageFraction, PDRectangle.A4.getHeight());
+			}
+		}
+		return document;
+	}
+
+	private static TextLayerAnalyzer.PageText text(String text) {
+		int visible = 0;
+		int letters = 0;
+		int digits = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				visible++;
+				if (Character.isLetter(c)) {
+					letters++;
+				} else if (Character.isDigit(c)) {
+					digits++;
+				}
+			}
+		}
+		return new TextLayerAnalyzer.PageText(text, visible, letters, digits, 0.1);
+	}
+}
@@ -0,0 +1,255 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.Entity.OfferEntity;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mehrere Worker mit eigener Lease-Kennung gegen eine echte Postgres-Instanz, weil
+ * {@code FOR UPDATE SKIP LOCKED} sich nicht sinnvoll nachbilden lässt.
+ */
+class PageWorkQueueTest {
+
+	private static EmbeddedPostgres postgres;
+	private static DataSource dataSource;
+
+	@TempDir
+	Path tempDir;
+
+	private JdbcTemplate jdbcTemplate;
+	private JobCheckpointStore checkpointStore;
+	private PageWorkQueue queue;
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		postgres = EmbeddedPostgres.start();
+		dataSource = postgres.getPostgresDatabase();
+		// Dasselbe Schema wie in Produktion, inklusive partitionierter offer_data
+		Flyway.configure().dataSource(dataSource).load().migrate();
+	}
+
+	@AfterAll
+	static void stopDatabase() throws Exception {
+		postgres.close();
+	}
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("truncate upload_job, upload_file, upload_page, offer_data");
+		checkpointStore = new JobCheckpointStore(jdbcTemplate);
+		OfferSaver offerSaver = new OfferSaver(null, jdbcTemplate, new PriceNormalizer());
+		ReflectionTestUtils.setField(offerSaver, "batchSize", 100);
+		queue = new PageWorkQueue(jdbcTemplate, new DataSourceTransactionManager(dataSource), offerSaver, Duration.ofMinutes(1), 3);
+	}
+
+	@Test
+	void parallelWorkersClaimEveryPageExactlyOnce() throws Exception {
+		String jobId = createJob(4, 60, 50, 90);
+		Set<String> claimed = ConcurrentHashMap.newKeySet();
+		List<String> duplicates = new ArrayList<>();
+
+		drain(8, 0, claimed, duplicates);
+
+		assertTrue(duplicates.isEmpty(), "doppelt ausgelieferte Seiten: " + duplicates);
+		assertEquals(200, claimed.size());
+		assertEquals(200, count("select count(*) from upload_page where status = 'DONE'"));
+		assertEquals("COMPLETED", jdbcTemplate.queryForObject("select status from upload_job where id = ?", String.class, jobId));
+		assertEquals(0, count("select count(*) from upload_file where content is not null"));
+	}
+
+	@Test
+	void expiredLeaseIsRedeliveredAndOldOwnerCannotComplete() throws IOException {
+		createJob(1, 1);
+
+		PageWorkQueue.PageClaim first = queue.claim("node-a").orElseThrow();
+		assertTrue(queue.claim("node-b").isEmpty());
+
+		jdbcTemplate.update("update upload_page set lease_until = now() - interval '1 second'");
+		PageWorkQueue.PageClaim second = queue.claim("node-b").orElseThrow();
+		assertEquals(first.fileId(), second.fileId());
+		assertEquals(first.pageIndices(), second.pageIndices());
+
+		assertThrows(PageWorkQueue.LeaseLostException.class,
+				() -> queue.complete(first.fileId(), 0, "node-a", List.of(), 0));
+		queue.complete(second.fileId(), 0, "node-b", List.of(), 0);
+
+		assertEquals(2, count("select attempts from upload_page"));
+		assertTrue(queue.finishJobIfDone(second.jobId()));
+	}
+
+	@Test
+	void pageFailsAfterMaxAttempts() throws IOException {
+		String jobId = createJob(1, 1);
+
+		for (int attempt = 1; attempt <= 3; attempt++) {
+			PageWorkQueue.PageClaim claim = queue.claim("node-a").orElseThrow();
+			queue.fail(claim.fileId(), 0, "node-a", "Fehler " + attempt);
+		}
+
+		assertTrue(queue.claim("node-a").isEmpty());
+		assertTrue(queue.finishJobIfDone(jobId));
+		assertEquals("FAILED", jdbcTemplate.queryForObject("select status from upload_job where id = ?", String.class, jobId));
+		assertTrue(checkpointStore.prepareResume(jobId));
+		assertTrue(queue.claim("node-b").isPresent());
+	}
+
+	/**
+	 * Datei B enthält dasselbe Angebot wie Datei A; wird die Seite von A erneut ausgeliefert, darf
+	 * nur der Anteil von A verschwinden.
+	 */
+	@Test
+	void redeliveredPageKeepsOffersMergedFromOtherFile() throws IOException {
+		createJob(1, 1, 1);
+		PageWorkQueue.PageClaim a = queue.claim("node-a").orElseThrow();
+		PageWorkQueue.PageClaim b = queue.claim("node-b").orElseThrow();
+		String fileA = filename(a.fileId());
+		String fileB = filename(b.fileId());
+
+		queue.savePartial(a.fileId(), 0, "node-a", List.of(offer("Milch", a.fileId(), fileA), offer("Butter", a.fileId(), fileA)));
+		queue.complete(b.fileId(), 0, "node-b", List.of(offer("Milch", b.fileId(), fileB)), 1);
+		assertEquals(2, count("select count(*) from offer_data"));
+		assertEquals(List.of(fileA, fileB), jdbcTemplate.queryForList(
+				"select unnest(source_pdf_files) from offer_data where product_name = 'Milch'", String.class));
+
+		jdbcTemplate.update("update upload_page set lease_until = now() - interval '1 second' where file_id = ?", a.fileId());
+		PageWorkQueue.PageClaim redelivered = queue.claim("node-c").orElseThrow();
+		assertEquals(a.fileId(), redelivered.fileId());
+
+		Map<String, Object> milk = jdbcTemplate.queryForMap("""
+				select array_to_string(source_pdf_files, ',') as files, array_to_string(source_pages, ',') as pages,
+				       associated_pdf_file, upload_file_id
+				from offer_data where product_name = 'Milch'""");
+		assertEquals(fileB, milk.get("files"));
+		assertEquals(b.fileId() + ":0", milk.get("pages"));
+		assertEquals(fileB, milk.get("associated_pdf_file"));
+		assertEquals(b.fileId(), milk.get("upload_file_id"));
+		assertEquals(0, count("select count(*) from offer_data where product_name = 'Butter'"));
+
+		queue.complete(a.fileId(), 0, "node-c", List.of(offer("Milch", a.fileId(), fileA), offer("Butter", a.fileId(), fileA)), 2);
+		assertEquals(2, count("select count(*) from offer_data"));
+		assertEquals(2, count("select cardinality(source_pages) from offer_data where product_name = 'Milch'"));
+	}
+
+	/**
+	 * Der Durchsatz soll mit der Zahl der Worker annähernd linear steigen, solange die Verarbeitung
+	 * einer Seite (hier simuliert) und nicht die Warteschlange selbst den Takt vorgibt.
+	 */
+	@Test
+	void throughputScalesWithWorkers() throws Exception {
+		createJob(1, 96);
+		long single = drain(1, 20, ConcurrentHashMap.newKeySet(), new ArrayList<>());
+
+		jdbcTemplate.execute("truncate upload_job, upload_file, upload_page, offer_data");
+		createJob(1, 96);
+		long parallel = drain(8, 20, ConcurrentHashMap.newKeySet(), new ArrayList<>());
+
+		double speedup = (double) single / parallel;
+		System.out.printf(Locale.ROOT, "Warteschlange: 1 Worker %d ms, 8 Worker %d ms, Faktor %.1f%n", single, parallel, speedup);
+		assertTrue(speedup >= 4, "8 Worker nur %.1f-mal so schnell wie einer".formatted(speedup));
+	}
+
+	/**
+	 * Arbeitet die Warteschlange mit {@code workerCount} Workern ab, je Seite {@code workMillis} Pause.
+	 *
+	 * @return Dauer in Millisekunden
+	 */
+	private long drain(int workerCount, long workMillis, Set<String> claimed, List<String> duplicates) throws Exception {
+		long start = System.nanoTime();
+		ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int w = 0; w < workerCount; w++) {
+			String owner = "worker-" + w;
+			futures.add(workers.submit(() -> {
+				Optional<PageWorkQueue.PageClaim> claim;
+				while ((claim = queue.claim(owner)).isPresent()) {
+					for (int pageIndex : claim.get().pageIndices()) {
+						if (!claimed.add(claim.get().fileId() + "/" + pageIndex)) {
+							synchronized (duplicates) {
+								duplicates.add(claim.get().fileId() + "/" + pageIndex);
+							}
+						}
+						if (workMillis > 0) {
+							Thread.sleep(workMillis);
+						}
+						queue.complete(claim.get().fileId(), pageIndex, owner, List.of(), 0);
+					}
+					queue.finishJobIfDone(claim.get().jobId());
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		workers.shutdown();
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private String createJob(int pagesPerChunk, int... pageCounts) throws IOException {
+		String jobId = UUID.randomUUID().toString();
+		List<UploadedPdf> pdfs = new ArrayList<>();
+		List<Integer> counts = new ArrayList<>();
+		for (int pageCount : pageCounts) {
+			Path file = Files.write(tempDir.resolve(UUID.randomUUID() + ".pdf"), new byte[]{1});
+			pdfs.add(new UploadedPdf(UUID.randomUUID().toString(), file, "prospekt-" + pdfs.size() + ".pdf"));
+			counts.add(pageCount);
+		}
+		checkpointStore.createJob(jobId, pdfs, counts, pagesPerChunk, null);
+		return jobId;
+	}
+
+	private static OfferEntity offer(String product, String fileId, String filename) {
+		return OfferEntity.builder()
+				.storeName("Rewe")
+				.productName(product)
+				.quantity("1 l")
+				.price("1,19 €")
+				.calenderWeek((byte) 42)
+				.offerDateStart(LocalDate.of(2026, 10, 12))
+				.offerDateEnd(LocalDate.of(2026, 10, 17))
+				.associatedPdfFile(filename)
+				.uploadFileId(fileId)
+				.pageIndex(0)
+				.build();
+	}
+
+	private String filename(String fileId) {
+		return jdbcTemplate.queryForObject("select filename from upload_file where id = ?", String.class, fileId);
+	}
+
+	private int count(String sql) {
+		Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+		return count != null ? count : 0;
+	}
+}
@@ -0,0 +1,138 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prospektai.demo.loadtest.SyntheticProspekts.PageKind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aufbau des Request-Bodys für {@code /chat/completions}: {@link OpenAiClient#writePayload}
+ * (Base64 direkt in den Ausgabestrom) gegen den früheren Weg über Data-URL-Strings und eine
+ * Map, die Jackson komplett serialisiert.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadBenchmark {
+
+	private static final String CONTEXT = "Markt: Stub-Markt, Zeitraum: 12.10.2026 bis 17.10.2026";
+
+	@Param({"OFFERS", "SCAN"})
+	public PageKind page;
+
+	/** Seiten je Request, vgl. {@code prospekt.llm.batch.max-pages}. */
+	@Param({"1", "3"})
+	public int pages;
+
+	private ObjectMapper objectMapper;
+	private OpenAiClient client;
+	private List<EncodedImage> images;
+	private ByteArrayOutputStream out;
+
+	// Für die Vergleichsvariante, wie sie OpenAiClient früher als Felder hielt
+	private String model;
+	private String systemPrompt;
+	private String userPrompt;
+	private String textOnly;
+	private String textWithThumbnail;
+	private JsonNode responseFormatSingle;
+	private JsonNode responseFormatBatched;
+
+	@Setup
+	public void prepare() throws IOException {
+		objectMapper = BenchmarkFixtures.objectMapper();
+		client = BenchmarkFixtures.openAiClient(objectMapper);
+		images = Collections.nCopies(pages, BenchmarkFixtures.encodedPage(page));
+		out = new ByteArrayOutputStream(8 << 20);
+
+		model = (String) ReflectionTestUtils.getField(client, "model");
+		systemPrompt = (String) ReflectionTestUtils.getField(client, "systemPrompt");
+		userPrompt = (String) ReflectionTestUtils.getField(client, "userPrompt");
+		textOnly = (String) ReflectionTestUtils.getField(OpenAiClient.class, "TEXT_ONLY");
+		textWithThumbnail = (String) ReflectionTestUtils.getField(OpenAiClient.class, "TEXT_WITH_THUMBNAIL");
+		responseFormatSingle = objectMapper.readTree((String) ReflectionTestUtils.getField(client, "responseFormatSingle"));
+		responseFormatBatched = objectMapper.readTree((String) ReflectionTestUtils.getField(client, "responseFormatBatched"));
+
+		writePayload();
+		if (!objectMapper.readTree(out.toByteArray()).equals(objectMapper.readTree(mapAndDataUrlStrings()))) {
+			throw new IllegalStateException("mapAndDataUrlStrings baut einen anderen Request als writePayload");
+		}
+	}
+
+	@Benchmark
+	public int writePayload() throws IOException {
+		out.reset();
+		client.writePayload(out, images, CONTEXT, false);
+		return out.size();
+	}
+
+	@Benchmark
+	public String dataUrl() {
+		EncodedImage image = images.get(0);
+		return "data:" + image.mimeType() + ";base64," + Base64.getEncoder().encodeToString(image.data());
+	}
+
+	/**
+	 * Derselbe Request wie {@link #writePayload} (System- und User-Prompt, Kontext, Seitentexte,
+	 * {@code response_format}), nur als Map mit Data-URL-Strings; {@link #prepare} prüft, dass beide
+	 * dasselbe JSON ergeben.
+	 */
+	@Benchmark
+	public byte[] mapAndDataUrlStrings() throws IOException {
+		boolean batched = images.size() > 1;
+		List<Object> content = new ArrayList<>();
+		content.add(text(userPrompt));
+		content.add(text("Bekannt aus vorherigen Seiten: " + CONTEXT));
+		if (batched) {
+			content.add(text("Die folgenden " + images.size() + " Einträge sind aufeinanderfolgende Seiten desselben Prospekts. "
+					+ "Gib bei jedem Angebot in pageIndex die Nummer der Seite an (0 bis " + (images.size() - 1) + ")."));
+		}
+		for (int i = 0; i < images.size(); i++) {
+			EncodedImage image = images.get(i);
+			if (batched) {
+				content.add(text("pageIndex " + i + ":"));
+			}
+			if (image.text() != null) {
+				content.add(text((image.hasImage() ? textWithThumbnail : textOnly) + image.text()));
+			}
+			if (image.hasImage()) {
+				content.add(Map.of("type", "image_url", "image_url", Map.of(
+						"format", image.mimeType(),
+						"url", "data:" + image.mimeType() + ";base64," + Base64.getEncoder().encodeToString(image.data()))));
+			}
+		}
+		return objectMapper.writeValueAsBytes(Map.of(
+				"model", model,
+				"messages", List.of(
+						Map.of("role", "system", "content", systemPrompt),
+						Map.of("role", "user", "content", content)),
+				"response_format", batched ? responseFormatBatched : responseFormatSingle));
+	}
+
+	private static Map<String, String> text(String text) {
+		return Map.of("type", "text", "text", text);
+	}
+}
@@ -0,0 +1,57 @@
+package com.prospektai.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineStageTest {
+
+	private final PipelineStage persist = new PipelineStage("persist", 2, 16, false);
+
+	@AfterEach
+	void shutdown() {
+		persist.shutdown();
+	}
+
+	/**
+	 * Wie im Streaming-Modus: jede Seite wartet auf ihre Teil-Speicherungen in der Persist-Stufe
+	 * und schließt danach in derselben Stufe ab. Mit mehr Seiten als Plätzen darf das nicht hängen.
+	 */
+	@Test
+	@Timeout(30)
+	void followUpAfterOwnTaskDoesNotBlockFullStage() {
+		int pages = 60;
+		AtomicInteger completed = new AtomicInteger();
+		List<CompletableFuture<Integer>> done = new ArrayList<>();
+
+		for (int i = 0; i < pages; i++) {
+			CompletableFuture<Void> flushed = persist.submit(() -> {
+				Thread.sleep(2);
+				return null;
+			});
+			done.add(persist.submitAfter(flushed, completed::incrementAndGet));
+		}
+
+		CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+		assertEquals(pages, completed.get());
+	}
+
+	@Test
+	void followUpIsSkippedWhenDependencyFails() {
+		CompletableFuture<Void> failed = CompletableFuture.failedFuture(new IllegalStateException("Fehler"));
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<Integer> result = persist.submitAfter(failed, calls::incrementAndGet);
+
+		assertTrue(result.isCompletedExceptionally());
+		assertEquals(0, calls.get());
+	}
+}
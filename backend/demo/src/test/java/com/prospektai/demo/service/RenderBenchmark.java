@@ -0,0 +1,65 @@
+package com.prospektai.demo.service;
+
+import com.prospektai.demo.loadtest.SyntheticProspekts.PageKind;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PDFRenderer#renderImageWithDPI} je Seitentyp, Auflösung und Farbmodell. Die Profile aus
+ * {@code prospekt.render.profiles} liegen zwischen 110 und 200 DPI, die Vorschau bei 24 DPI.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+	@Param({"OFFERS", "SCAN"})
+	public PageKind page;
+
+	@Param({"24", "110", "150", "200"})
+	public float dpi;
+
+	@Param({"RGB", "GRAY"})
+	public ImageType imageType;
+
+	private PDDocument document;
+	private PDFRenderer renderer;
+	private int pageIndex;
+
+	@Setup
+	public void open() throws IOException {
+		document = BenchmarkFixtures.document();
+		renderer = new PDFRenderer(document);
+		pageIndex = BenchmarkFixtures.pageIndex(page);
+	}
+
+	@TearDown
+	public void close() throws IOException {
+		document.close();
+	}
+
+	@Benchmark
+	public BufferedImage render() throws IOException {
+		return renderer.renderImageWithDPI(pageIndex, dpi, imageType);
+	}
+}
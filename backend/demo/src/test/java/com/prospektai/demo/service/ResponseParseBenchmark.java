@@ -0,0 +1,96 @@
+package com.prospektai.demo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prospektai.demo.Entity.OfferEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auswerten einer nicht gestreamten Antwort: die einzelnen Schritte aus
+ * {@link OpenAiClient#parseOffers} (Codeblock entfernen, {@code readTree}, {@code convertValue} je
+ * Angebot), der ganze Weg, sowie direktes Binden ohne Baum als Alternative.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParseBenchmark {
+
+	private static final TypeReference<List<OfferEntity>> OFFER_LIST = new TypeReference<>() {};
+
+	@Param({"1", "3"})
+	public int pages;
+
+	@Param({"12", "40"})
+	public int offersPerPage;
+
+	private ObjectMapper objectMapper;
+	private OpenAiClient client;
+	private String content;
+	private String stripped;
+	private JsonNode offers;
+
+	@Setup
+	public void prepare() throws IOException {
+		objectMapper = BenchmarkFixtures.objectMapper();
+		client = BenchmarkFixtures.openAiClient(objectMapper);
+		content = BenchmarkFixtures.response(pages, offersPerPage);
+		stripped = stripFences();
+		offers = objectMapper.readTree(stripped).get("offers");
+	}
+
+	@Benchmark
+	public String stripFences() {
+		return content.replaceFirst("^```json\\s*", "").replaceAll("```\\s*$", "").trim();
+	}
+
+	@Benchmark
+	public JsonNode readTree() throws IOException {
+		return objectMapper.readTree(stripped);
+	}
+
+	@Benchmark
+	public List<OfferEntity> convertValueEach() {
+		List<OfferEntity> result = new ArrayList<>(offers.size());
+		for (JsonNode offer : offers) {
+			result.add(objectMapper.convertValue(offer, OfferEntity.class));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<OfferEntity> convertValueList() {
+		return objectMapper.convertValue(offers, OFFER_LIST);
+	}
+
+	@Benchmark
+	public List<List<OfferEntity>> parseOffers() throws IOException {
+		return client.parseOffers(content, pages);
+	}
+
+	@Benchmark
+	public OffersResponse readValueDirect() throws IOException {
+		return objectMapper.readValue(stripped, OffersResponse.class);
+	}
+
+	public record OffersResponse(List<OfferEntity> offers) {
+	}
+}
@@ -0,0 +1,131 @@
+package db.migration;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Flyway gegen eine leere Datenbank und gegen eine, die Hibernate mit dem ursprünglichen
+ * {@code OfferEntity} angelegt hat (Stand vor Flyway, wie sie auf main noch laufen).
+ */
+class MigrationTest {
+
+	private static EmbeddedPostgres postgres;
+
+	@BeforeAll
+	static void startDatabase() throws Exception {
+		postgres = EmbeddedPostgres.start();
+	}
+
+	@AfterAll
+	static void stopDatabase() throws Exception {
+		postgres.close();
+	}
+
+	@Test
+	void migratesEmptyDatabase() {
+		DataSource dataSource = database("empty");
+
+		MigrateResult result = flyway(dataSource).migrate();
+
+		assertEquals(5, result.migrationsExecuted);
+		assertEquals(0, new JdbcTemplate(dataSource).queryForObject("select count(*) from offer_data", Integer.class));
+	}
+
+	@Test
+	void migratesOriginalHibernateSchema() {
+		DataSource dataSource = database("original");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		// DDL, die Hibernate (ddl-auto: update) für das ursprüngliche OfferEntity erzeugt hat
+		jdbcTemplate.execute("""
+				create table offer_data (
+				    calender_week smallint,
+				    offer_date_end date,
+				    offer_date_start date,
+				    id bigint generated by default as identity,
+				    app_price varchar(255),
+				    associated_pdf_file varchar(255),
+				    brand varchar(255),
+				    original_price varchar(255),
+				    price varchar(255),
+				    product_description varchar(255),
+				    product_name varchar(255),
+				    quantity varchar(255),
+				    store_name varchar(255),
+				    primary key (id)
+				)""");
+		insertOriginal(jdbcTemplate, "Milch", "1,19 €", "kw42-nord.pdf");
+		insertOriginal(jdbcTemplate, "Milch", "1,19 €", "kw42-sued.pdf");
+		insertOriginal(jdbcTemplate, "Butter", "2,29 €", "kw42-nord.pdf");
+
+		MigrateResult result = flyway(dataSource).migrate();
+
+		assertEquals(5, result.migrationsExecuted);
+		assertEquals("0", jdbcTemplate.queryForObject(
+				"select version from flyway_schema_history where type = 'BASELINE'", String.class));
+
+		List<Map<String, Object>> offers = jdbcTemplate.queryForList("""
+				select product_name, price_cents, offer_week, offer_key, source_pdf_files
+				from offer_data order by product_name""");
+		assertEquals(2, offers.size());
+		assertEquals("Butter", offers.get(0).get("product_name"));
+		Map<String, Object> milk = offers.get(1);
+		assertEquals(119, milk.get("price_cents"));
+		assertEquals(Date.valueOf("2026-10-12"), milk.get("offer_week"));
+		assertNotNull(milk.get("offer_key"));
+		assertEquals(List.of("kw42-nord.pdf", "kw42-sued.pdf"), sorted((Array) milk.get("source_pdf_files")));
+
+		// Angebote liegen in ihrer Wochenpartition, neue IDs setzen hinter den alten fort
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from offer_data_default", Integer.class));
+		assertEquals(2, jdbcTemplate.queryForObject("select count(*) from offer_data_p20261012", Integer.class));
+		assertEquals(4L, jdbcTemplate.queryForObject("select nextval('offer_data_id_seq')", Long.class));
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from upload_page", Integer.class));
+	}
+
+	private static void insertOriginal(JdbcTemplate jdbcTemplate, String product, String price, String file) {
+		jdbcTemplate.update("""
+				insert into offer_data (store_name, product_name, brand, quantity, price, associated_pdf_file,
+				                        calender_week, offer_date_start, offer_date_end)
+				values ('Aldi Nord', ?, 'Milsani', '1 l', ?, ?, 42, date '2026-10-12', date '2026-10-17')""",
+				product, price, file);
+	}
+
+	private static List<String> sorted(Array array) {
+		try {
+			String[] values = (String[]) array.getArray();
+			Arrays.sort(values);
+			return List.of(values);
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static DataSource database(String name) {
+		new JdbcTemplate(postgres.getPostgresDatabase()).execute("create database " + name);
+		return postgres.getDatabase("postgres", name);
+	}
+
+	private static Flyway flyway(DataSource dataSource) {
+		// wie spring.flyway in application.yml
+		return Flyway.configure()
+				.dataSource(dataSource)
+				.baselineOnMigrate(true)
+				.baselineVersion("0")
+				.load();
+	}
+}
@@ -6,6 +6,10 @@ import { Button, Alert, Snackbar, CircularProgress } from '@mui/material';
 import { Upload } from '@mui/icons-material';
 import axios from "axios";
 
+// Auch große Uploads sind nach einigen Minuten fertig; danach nicht endlos weiter abfragen
+const JOB_POLL_INTERVAL_MS = 2000;
+const JOB_MAX_WAIT_MS = 30 * 60 * 1000;
+
 export default function OffersPage() {
     const [offers, setOffers] = useState<OfferDataTypes[]>([]);
     const [isLoading, setIsLoading] = useState(true);
@@ -35,6 +39,25 @@ export default function OffersPage() {
         fetchOffers()
     }, []);
 
+    const waitForJob = async (jobId: string) => {
+        const deadline = Date.now() + JOB_MAX_WAIT_MS;
+        while (Date.now() < deadline) {
+            const response = await fetch(`${process.env.NEXT_PUBLIC_API_BASE_URL}/api/jobs/${jobId}`);
+            if (response.status === 404) throw new Error('Upload-Job nicht mehr vorhanden');
+            if (!response.ok) throw new Error('Status des Upload-Jobs konnte nicht abgerufen werden');
+
+            const job = await response.json();
+            if (job.status === 'FAILED') {
+                throw new Error(job.error ?? 'Verarbeitung fehlgeschlagen');
+            }
+            if (job.status === 'COMPLETED') {
+                return job;
+            }
+            await new Promise((resolve) => setTimeout(resolve, JOB_POLL_INTERVAL_MS));
+        }
+        throw new Error('Verarbeitung dauert zu lange, bitte später erneut laden');
+    };
+
     const handleUploadClick = () => {
         fileInputRef. current?.click();
     };
@@ -69,6 +92,9 @@ export default function OffersPage() {
 
             if (!response.ok) throw new Error('Upload fehlgeschlagen');
 
+            const { jobId } = await response.json();
+            await waitForJob(jobId);
+
             const fileCount = files.length;
             setSuccess(`${fileCount} PDF${fileCount > 1 ? 's' : ''} erfolgreich verarbeitet`);
             await fetchOffers();